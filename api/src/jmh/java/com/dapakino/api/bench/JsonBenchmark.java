@@ -0,0 +1,113 @@
+package com.dapakino.api.bench;
+
+import com.dapakino.api.model.Category;
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderItem;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serializzazione dei payload più grossi: il menu (prodotti con la categoria EAGER)
+// e gli ordini della cucina/storico (ordine + utente + righe)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"50"})
+    public int orderCount;
+
+    private ObjectMapper objectMapper;
+    private List<Product> products;
+    private List<Order> orders;
+
+    @Setup
+    public void setup() {
+        objectMapper = JsonMapper.builder().build();
+
+        List<Category> categories = new ArrayList<>();
+        for (String name : List.of("Le Pizze", "Le Focacce", "Le Farinate", "Le Bevande")) {
+            categories.add(Category.builder().id((long) categories.size() + 1).name(name).build());
+        }
+
+        // Dimensioni simili al menu reale (~45 prodotti)
+        products = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            products.add(Product.builder()
+                    .id((long) i + 1)
+                    .name("Pizza " + i)
+                    .description("Passata di pomodoro nostrano, fior di latte, salsiccia, zucchine al forno")
+                    .price(new BigDecimal("8.50"))
+                    .category(categories.get(i % categories.size()))
+                    .available(true)
+                    .build());
+        }
+
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("mario.rossi@example.com");
+        user.setPassword("secret");
+        user.setFirstName("Mario");
+        user.setLastName("Rossi");
+        user.setAddress("Via Roma 1");
+        user.setCity("Torino");
+        user.setPhone("3331234567");
+
+        orders = new ArrayList<>();
+        for (int i = 0; i < orderCount; i++) {
+            Order order = new Order();
+            order.setId((long) i + 1);
+            order.setUser(user);
+            order.setOrderDate(LocalDateTime.of(2026, 1, 1, 19, 0).plusMinutes(i));
+            order.setDeliveryTime("19:30");
+            order.setTotalAmount(24.5);
+            order.setStatus("INVIATO");
+            order.setOrderDetails("Cliente: Mario Rossi\nIndirizzo: Via Roma 1\nTel: 3331234567\nOrario: 19:30\n---\n"
+                    + "2x Pizza 1\n1x Pizza 2 (+Bufala)\n---\nTOTALE: 24.50€");
+            for (int j = 0; j < 3; j++) {
+                Product product = products.get(j);
+                order.getItems().add(OrderItem.builder()
+                        .id((long) i * 3 + j)
+                        .order(order)
+                        .product(product)
+                        .productId(product.getId())
+                        .productName(product.getName())
+                        .quantity(j + 1)
+                        .unitPrice(product.getPrice())
+                        .build());
+            }
+            orders.add(order);
+        }
+    }
+
+    @Benchmark
+    public byte[] products() {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] orders() {
+        return objectMapper.writeValueAsBytes(orders);
+    }
+}
@@ -0,0 +1,76 @@
+package com.dapakino.api.bench;
+
+import com.dapakino.api.ApiApplication;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.repository.ProductRepository;
+import com.dapakino.api.service.MenuSnapshotService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lettura del menu su H2 in memoria (stesso schema e stesso DataSeeder dell'app):
+// query diretta, snapshot già pronto e ricostruzione dello snapshot dopo una modifica
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MenuBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private MenuSnapshotService menuSnapshot;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(ApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.properties.hibernate.log_slow_query=0",
+                        "logging.level.root=WARN")
+                .run();
+        productRepository = context.getBean(ProductRepository.class);
+        menuSnapshot = context.getBean(MenuSnapshotService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> findAllProducts() {
+        return productRepository.findAll();
+    }
+
+    @Benchmark
+    public byte[] snapshotHit() {
+        return menuSnapshot.get().availableProducts().json();
+    }
+
+    @Benchmark
+    public byte[] snapshotRebuild() {
+        menuSnapshot.invalidate();
+        return menuSnapshot.get().availableProducts().json();
+    }
+}
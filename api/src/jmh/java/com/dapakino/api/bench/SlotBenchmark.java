@@ -0,0 +1,57 @@
+package com.dapakino.api.bench;
+
+import com.dapakino.api.service.SlotLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Carico del forno per fascia (GET /api/orders/slots, POST /api/orders)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotBenchmark {
+
+    private static final int SLOTS = 17;   // 18:30-22:30 ogni 15 minuti
+    private static final int CAPACITY = 12;
+
+    private SlotLedger ledger;
+
+    @Setup
+    public void setup() {
+        // Serata a metà: metà fasce piene, le altre parzialmente occupate
+        ledger = new SlotLedger(SLOTS, CAPACITY);
+        for (int i = 0; i < SLOTS; i++) {
+            ledger.add(i, i % 2 == 0 ? CAPACITY : i % 3);
+        }
+    }
+
+    // Caso peggiore: la prima fascia utile è in fondo alla serata
+    @Benchmark
+    public int earliestFit() {
+        return ledger.earliestFit(0, CAPACITY - 1);
+    }
+
+    // Prenotazione + rilascio sulla stessa fascia da più thread: misura la contesa sul CAS
+    @Benchmark
+    @Threads(4)
+    public boolean reserveAndRelease() {
+        boolean reserved = ledger.tryReserve(1, 2);
+        if (reserved) {
+            ledger.release(1, 2);
+        }
+        return reserved;
+    }
+}
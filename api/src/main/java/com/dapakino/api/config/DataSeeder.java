@@ -5,13 +5,16 @@ import com.dapakino.api.model.Product;
 import com.dapakino.api.repository.CategoryRepository;
 import com.dapakino.api.repository.ProductRepository;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 
+// Menu di partenza su un DB vuoto. Nel profilo "faststart" è spento: lo fa la migrazione V2__seed_menu.sql
 @Component
+@ConditionalOnProperty(name = "dapakino.seed.enabled", havingValue = "true", matchIfMissing = true)
 public class DataSeeder implements CommandLineRunner {
 
     private final ProductRepository productRepository;
@@ -26,10 +29,11 @@ public class DataSeeder implements CommandLineRunner {
     public void run(String... args) {
         if (categoryRepository.count() == 0) {
             // 1. CREAZIONE CATEGORIE
-            Category pizze = categoryRepository.save(Category.builder().name("Le Pizze").build());
-            Category focacce = categoryRepository.save(Category.builder().name("Le Focacce").build());
-            Category farinate = categoryRepository.save(Category.builder().name("Le Farinate").build());
-            Category bevande = categoryRepository.save(Category.builder().name("Le Bevande").build());
+            Category pizze = Category.builder().name("Le Pizze").build();
+            Category focacce = Category.builder().name("Le Focacce").build();
+            Category farinate = Category.builder().name("Le Farinate").build();
+            Category bevande = Category.builder().name("Le Bevande").build();
+            categoryRepository.saveAll(List.of(pizze, focacce, farinate, bevande)); // un solo batch di INSERT
 
             // 2. CREAZIONE PRODOTTI
             List<Product> menu = Arrays.asList(
@@ -90,7 +94,7 @@ public class DataSeeder implements CommandLineRunner {
                     Product.builder().name("Poretti").description("Birra Poretti (66cl)").price(new BigDecimal("5.00")).category(bevande).available(true).build()
             );
 
-            productRepository.saveAll(menu);
+            productRepository.saveAll(menu); // id da sequenza: INSERT in batch da 50, non uno alla volta
             System.out.println("✅ Menu Da Pakino popolato con successo!");
         }
     }
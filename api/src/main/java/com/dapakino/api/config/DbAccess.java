@@ -0,0 +1,17 @@
+package com.dapakino.api.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Segna un endpoint che usa il DB: la richiesta passa dal bulkhead (vedi DbBulkhead)
+// della sua categoria prima di entrare nel controller.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DbAccess {
+
+    Kind value();
+
+    enum Kind { READ, WRITE }
+}
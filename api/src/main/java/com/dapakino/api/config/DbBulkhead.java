@@ -0,0 +1,91 @@
+package com.dapakino.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Compartimenti stagni davanti al pool Hikari: letture e scritture hanno ciascuna i propri permessi
+// e insieme non superano le connessioni disponibili. Una raffica di ordini non può più
+// lasciare senza connessioni lo storico o la cucina, e chi non trova posto entro max-wait
+// riceve subito un 503 invece di restare appeso.
+// Col profilo "replica" le letture vanno su un pool a parte (ReplicaDataSourceConfig): le letture prendono
+// la misura di quel pool, le scritture quella del primario tolta la quota delle letture rimandate al primario
+// per read-your-writes.
+@Component
+public class DbBulkhead {
+
+    private record Compartment(Semaphore permits, Timer waitTime, Counter rejected) {}
+
+    private final Map<DbAccess.Kind, Compartment> compartments = new EnumMap<>(DbAccess.Kind.class);
+    private final long maxWaitNanos;
+
+    public DbBulkhead(MeterRegistry meterRegistry,
+                      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                      @Qualifier("replicaPool") ObjectProvider<HikariDataSource> replicaPool,
+                      @Value("${dapakino.bulkhead.write-permits:0}") int writePermits,
+                      @Value("${dapakino.bulkhead.read-permits:0}") int readPermits,
+                      @Value("${dapakino.bulkhead.max-wait:200ms}") Duration maxWait) {
+        HikariDataSource replica = replicaPool.getIfAvailable();
+        int writes;
+        int reads;
+        if (replica == null) {
+            // Un solo pool: 60% alle scritture, il resto alle letture
+            writes = writePermits > 0 ? writePermits : Math.max(1, poolSize * 6 / 10);
+            reads = readPermits > 0 ? readPermits : Math.max(1, poolSize - writes);
+        } else {
+            // Replica: le letture hanno tutto il suo pool; sul primario un 20% resta alle letture read-your-writes
+            writes = writePermits > 0 ? writePermits : Math.max(1, poolSize - Math.max(1, poolSize / 5));
+            reads = readPermits > 0 ? readPermits : Math.max(1, replica.getMaximumPoolSize());
+        }
+        this.maxWaitNanos = maxWait.toNanos();
+
+        register(meterRegistry, DbAccess.Kind.READ, reads);
+        register(meterRegistry, DbAccess.Kind.WRITE, writes);
+    }
+
+    // true se il permesso è stato ottenuto (va restituito con release)
+    public boolean tryAcquire(DbAccess.Kind kind) {
+        Compartment compartment = compartments.get(kind);
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = compartment.permits().tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        compartment.waitTime().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            compartment.rejected().increment();
+        }
+        return acquired;
+    }
+
+    public void release(DbAccess.Kind kind) {
+        compartments.get(kind).permits().release();
+    }
+
+    private void register(MeterRegistry meterRegistry, DbAccess.Kind kind, int permits) {
+        String tag = kind.name().toLowerCase(Locale.ROOT);
+        Semaphore semaphore = new Semaphore(permits, true);
+        compartments.put(kind, new Compartment(
+                semaphore,
+                Timer.builder("db.bulkhead.wait").tag("kind", tag).publishPercentileHistogram().register(meterRegistry),
+                meterRegistry.counter("db.bulkhead.rejected", "kind", tag)));
+        meterRegistry.gauge("db.bulkhead.available", Tags.of("kind", tag), semaphore, Semaphore::availablePermits);
+        meterRegistry.gauge("db.bulkhead.queued", Tags.of("kind", tag), semaphore, Semaphore::getQueueLength);
+    }
+}
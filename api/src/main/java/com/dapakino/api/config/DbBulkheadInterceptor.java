@@ -0,0 +1,48 @@
+package com.dapakino.api.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Prende il permesso del bulkhead prima del controller e lo restituisce a fine richiesta
+@Component
+public class DbBulkheadInterceptor implements HandlerInterceptor {
+
+    private static final String ACQUIRED_ATTRIBUTE = DbBulkheadInterceptor.class.getName() + ".acquired";
+
+    private final DbBulkhead bulkhead;
+
+    public DbBulkheadInterceptor(DbBulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        DbAccess access = method.getMethodAnnotation(DbAccess.class);
+        if (access == null) {
+            return true;
+        }
+        if (!bulkhead.tryAcquire(access.value())) {
+            // DB saturo: meglio un rifiuto veloce che un thread bloccato
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Servizio momentaneamente occupato, riprova");
+            return false;
+        }
+        request.setAttribute(ACQUIRED_ATTRIBUTE, access.value());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object acquired = request.getAttribute(ACQUIRED_ATTRIBUTE);
+        if (acquired instanceof DbAccess.Kind kind) {
+            request.removeAttribute(ACQUIRED_ATTRIBUTE);
+            bulkhead.release(kind);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.dapakino.api.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Conta le istruzioni SQL preparate da Hibernate sul thread corrente.
+// Registrato via hibernate.session_factory.statement_inspector; il conteggio per richiesta
+// lo legge RequestMetricsInterceptor, così un N+1 salta subito all'occhio nelle metriche.
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static int current() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,45 @@
+package com.dapakino.api.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+// Applica RateLimiter agli endpoint con @RateLimited: oltre il limite 429 con Retry-After (secondi, per eccesso)
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        RateLimited limited = method.getMethodAnnotation(RateLimited.class);
+        if (limited == null) {
+            return true;
+        }
+        long waitNanos = rateLimiter.tryAcquire(limited.value(), ReadYourWritesInterceptor.client(request));
+        if (waitNanos > 0) {
+            response.setHeader("Retry-After", Long.toString(retryAfterSeconds(waitNanos)));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Troppe richieste, riprova tra poco");
+            return false;
+        }
+        return true;
+    }
+
+    // Per eccesso e mai 0: ritentando dopo Retry-After la richiesta passa
+    static long retryAfterSeconds(long waitNanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1, (waitNanos + second - 1) / second);
+    }
+}
@@ -0,0 +1,18 @@
+package com.dapakino.api.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Segna un endpoint soggetto al limite di richieste per cliente (vedi RateLimiter) del suo gruppo.
+// I limiti si configurano per gruppo: dapakino.ratelimit.<gruppo>.per-minute / .burst
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    Group value();
+
+    // KITCHEN ha la precedenza: limiti larghi e fuori dal tetto globale dei clienti
+    enum Group { SUBMIT, BROWSE, KITCHEN }
+}
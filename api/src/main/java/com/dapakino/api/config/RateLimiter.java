@@ -0,0 +1,143 @@
+package com.dapakino.api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Limite di richieste per cliente (utente del token, altrimenti IP) e per gruppo di endpoint, davanti al bulkhead:
+// bot e refresh compulsivi vengono respinti con 429 prima di diventare lavoro sul DB remoto.
+// Token bucket in forma GCRA: lo stato di un cliente è un solo long (l'istante teorico in cui il secchio
+// torna pieno) aggiornato con compare-and-set, senza lock. Sopra i limiti per cliente c'è un tetto globale
+// per il traffico dei clienti; la cucina ne resta fuori, così nei picchi si scarta prima il pubblico.
+// I clienti inattivi (secchio di nuovo pieno) si possono dimenticare senza perdere nulla: li toglie evictIdle.
+// Il cliente anonimo è l'IP vero anche dietro il proxy dell'hosting (vedi TrustedForwardedHeaderFilter).
+@Component
+public class RateLimiter {
+
+    private static final String OVERFLOW_CLIENT = "*"; // Oltre max-clients i nuovi arrivati dividono un secchio solo
+
+    record Bucket(long intervalNanos, long toleranceNanos) {
+
+        static Bucket of(int perMinute, int burst) {
+            long interval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            return new Bucket(interval, interval * Math.max(burst, 1));
+        }
+
+        // 0 se la richiesta passa, altrimenti i nanosecondi da aspettare
+        long acquire(AtomicLong full, long now) {
+            while (true) {
+                long current = full.get();
+                long next = (current - now > 0 ? current : now) + intervalNanos;
+                long wait = next - now - toleranceNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (full.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        // Richieste "in coda" nel secchio: quante ne sono state spese in anticipo rispetto al ritmo
+        double depth(AtomicLong full, long now) {
+            return Math.max(0, full.get() - now) / (double) intervalNanos;
+        }
+    }
+
+    private record Group(Bucket bucket, Map<String, AtomicLong> clients, Counter allowed, Counter rejected) {}
+
+    private final Map<RateLimited.Group, Group> groups = new EnumMap<>(RateLimited.Group.class);
+    private final boolean enabled;
+    private final int maxClients;
+    private final Bucket global;
+    private final AtomicLong globalFull = new AtomicLong(System.nanoTime());
+    private final Counter shed;
+
+    public RateLimiter(MeterRegistry meterRegistry, Environment environment,
+                       @Value("${dapakino.ratelimit.enabled:true}") boolean enabled,
+                       @Value("${dapakino.ratelimit.max-clients:20000}") int maxClients,
+                       @Value("${dapakino.ratelimit.global.per-minute:3000}") int globalPerMinute,
+                       @Value("${dapakino.ratelimit.global.burst:200}") int globalBurst) {
+        this.enabled = enabled;
+        this.maxClients = maxClients;
+        this.global = globalPerMinute > 0 ? Bucket.of(globalPerMinute, globalBurst) : null;
+        this.shed = meterRegistry.counter("ratelimit.shed");
+        if (global != null) {
+            meterRegistry.gauge("ratelimit.queue.depth", Tags.of("group", "global"), globalFull,
+                    full -> global.depth(full, System.nanoTime()));
+        }
+
+        register(meterRegistry, environment, RateLimited.Group.SUBMIT, 10, 3);
+        register(meterRegistry, environment, RateLimited.Group.BROWSE, 60, 20);
+        register(meterRegistry, environment, RateLimited.Group.KITCHEN, 600, 100);
+    }
+
+    // 0 se la richiesta è ammessa, altrimenti i nanosecondi dopo cui ritentare
+    public long tryAcquire(RateLimited.Group name, String client) {
+        Group group = groups.get(name);
+        if (!enabled || group == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long wait = group.bucket().acquire(state(group, client, now), now);
+        if (wait > 0) {
+            group.rejected().increment();
+            return wait;
+        }
+        if (name != RateLimited.Group.KITCHEN && global != null) {
+            wait = global.acquire(globalFull, now);
+            if (wait > 0) {
+                shed.increment();
+                return wait;
+            }
+        }
+        group.allowed().increment();
+        return 0;
+    }
+
+    // Un cliente con il secchio di nuovo pieno è indistinguibile da uno mai visto
+    @Scheduled(fixedDelay = 30_000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Group group : groups.values()) {
+            group.clients().values().removeIf(full -> full.get() - now <= 0);
+        }
+    }
+
+    private AtomicLong state(Group group, String client, long now) {
+        Map<String, AtomicLong> clients = group.clients();
+        AtomicLong full = clients.get(client);
+        if (full != null) {
+            return full;
+        }
+        String key = clients.size() < maxClients ? client : OVERFLOW_CLIENT;
+        return clients.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    private void register(MeterRegistry meterRegistry, Environment environment, RateLimited.Group name,
+                          int defaultPerMinute, int defaultBurst) {
+        String prefix = "dapakino.ratelimit." + name.name().toLowerCase(Locale.ROOT);
+        int perMinute = environment.getProperty(prefix + ".per-minute", Integer.class, defaultPerMinute);
+        int burst = environment.getProperty(prefix + ".burst", Integer.class, defaultBurst);
+        if (perMinute <= 0) {
+            return; // Gruppo senza limite
+        }
+        String tag = name.name().toLowerCase(Locale.ROOT);
+        Map<String, AtomicLong> clients = new ConcurrentHashMap<>();
+        groups.put(name, new Group(Bucket.of(perMinute, burst), clients,
+                meterRegistry.counter("ratelimit.requests", "group", tag, "result", "allowed"),
+                meterRegistry.counter("ratelimit.requests", "group", tag, "result", "rejected")));
+        meterRegistry.gauge("ratelimit.clients", Tags.of("group", tag), clients, Map::size);
+    }
+}
@@ -0,0 +1,73 @@
+package com.dapakino.api.config;
+
+import com.dapakino.api.security.SessionPrincipal;
+import com.dapakino.api.security.SessionTokenFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-your-writes con la replica: una richiesta che scrive legge solo dal primario, e per
+// dapakino.datasource.replica.max-lag dopo una scrittura riuscita anche le richieste successive
+// dello stesso cliente (utente del token, altrimenti IP). Così "ordine appena creato" e storico
+// non tornano indietro nel tempo mentre la replica recupera. Senza profilo replica non ha effetto.
+@Component
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    private final long maxLagNanos;
+    private final ConcurrentHashMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesInterceptor(@Value("${dapakino.datasource.replica.max-lag:5s}") Duration maxLag) {
+        this.maxLagNanos = maxLag.toNanos();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isWrite(handler)) {
+            ReplicaRouting.forcePrimary();
+            return true;
+        }
+        Long lastWrite = lastWrites.get(client(request));
+        if (lastWrite != null && System.nanoTime() - lastWrite < maxLagNanos) {
+            ReplicaRouting.forcePrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRouting.clear();
+        if (isWrite(handler) && ex == null && response.getStatus() < 400) {
+            lastWrites.put(client(request), System.nanoTime());
+        }
+    }
+
+    // Le scritture più vecchie della finestra non servono più
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(time -> now - time >= maxLagNanos);
+    }
+
+    private static boolean isWrite(Object handler) {
+        if (!(handler instanceof HandlerMethod method)) {
+            return false;
+        }
+        DbAccess access = method.getMethodAnnotation(DbAccess.class);
+        return access != null && access.value() == DbAccess.Kind.WRITE;
+    }
+
+    // Chiave del cliente: la usano anche RateLimitInterceptor e le Idempotency-Key di OrderController
+    public static String client(HttpServletRequest request) {
+        if (request.getAttribute(SessionTokenFilter.PRINCIPAL_ATTRIBUTE) instanceof SessionPrincipal principal) {
+            return "user:" + principal.userId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
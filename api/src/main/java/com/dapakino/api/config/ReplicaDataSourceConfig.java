@@ -0,0 +1,59 @@
+package com.dapakino.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Profilo "replica": due pool Hikari separati (primary / replica, ognuno con le sue metriche hikaricp.*
+// taggate per pool) e un DataSource unico che instrada le transazioni readOnly sulla replica (ReplicaRouting).
+// JPA, JdbcTemplate e transazioni vedono solo il DataSource @Primary: nessun altro codice cambia.
+@Configuration
+@Profile("replica")
+public class ReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryPool(@Value("${spring.datasource.url}") String url,
+                                        @Value("${spring.datasource.username:}") String username,
+                                        @Value("${spring.datasource.password:}") String password,
+                                        @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxPoolSize) {
+        return pool("primary", url, username, password, maxPoolSize);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource replicaPool(@Value("${dapakino.datasource.replica.url}") String url,
+                                        @Value("${dapakino.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                        @Value("${dapakino.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                        @Value("${dapakino.datasource.replica.maximum-pool-size:10}") int maxPoolSize) {
+        HikariDataSource replica = pool("replica", url, username, password, maxPoolSize);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryPool") DataSource primary, @Qualifier("replicaPool") DataSource replica) {
+        ReplicaRouting routing = new ReplicaRouting();
+        routing.setTargetDataSources(Map.<Object, Object>of(ReplicaRouting.Target.PRIMARY, primary, ReplicaRouting.Target.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password, int maxPoolSize) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(maxPoolSize);
+        return pool;
+    }
+}
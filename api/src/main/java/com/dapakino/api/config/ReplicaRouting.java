@@ -0,0 +1,46 @@
+package com.dapakino.api.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+// Sceglie il pool per la connessione che sta per essere aperta: le transazioni in sola lettura vanno
+// sulla replica, tutto il resto (scritture, letture fuori transazione, read-your-writes) sul primario.
+// Va dietro un LazyConnectionDataSourceProxy: la connessione vera si prende alla prima query,
+// quando il flag readOnly della transazione è già impostato.
+public class ReplicaRouting extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    // Impostato per la durata di una richiesta da ReadYourWritesInterceptor
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    public static void forcePrimary() {
+        PRIMARY_ONLY.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PRIMARY_ONLY.remove();
+    }
+
+    // Letture che finiscono in una cache tenuta a lungo: da una replica in ritardo resterebbero vecchie
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_ONLY.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnly && PRIMARY_ONLY.get() == null ? Target.REPLICA : Target.PRIMARY;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dapakino.api.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Query SQL per richiesta, per endpoint (db.queries.per.request). Le latenze per endpoint
+// le misura già http.server.requests di Spring; qui aggiungiamo quante query costa ogni chiamata.
+@Component
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsInterceptor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry,
+                                     @Value("${dapakino.metrics.query-warn-threshold:20}") int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCountInspector.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        int queries = QueryCountInspector.current();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("db.queries.per.request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(queries);
+
+        if (queries > warnThreshold) {
+            log.warn("{} {} ha eseguito {} query: possibile N+1", request.getMethod(), uri, queries);
+        }
+    }
+}
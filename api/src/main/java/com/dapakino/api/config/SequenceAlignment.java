@@ -0,0 +1,58 @@
+package com.dapakino.api.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Passaggio da IDENTITY a SEQUENCE: sulle tabelle esistenti le sequenze nuove partirebbero da 1
+// e andrebbero a sbattere sugli id già usati. All'avvio le portiamo oltre il MAX(id) di ogni tabella
+// (GREATEST: se sono già avanti non tornano mai indietro). Solo su PostgreSQL.
+// Gira appena creati i bean (schema già aggiornato da Hibernate), quindi prima che il web server accetti
+// richieste, che il journal ordini venga rigiocato e che parta il DataSeeder: nessun INSERT con una sequenza indietro.
+// Con le migrazioni (profilo "faststart") lo fa una volta sola V3__align_sequences.sql.
+@Component
+@ConditionalOnProperty(name = "dapakino.sequences.align", havingValue = "true", matchIfMissing = true)
+public class SequenceAlignment implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceAlignment.class);
+
+    // sequenza -> tabella
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "products_seq", "products",
+            "categories_seq", "categories",
+            "users_seq", "users",
+            "orders_seq", "orders",
+            "order_items_seq", "order_items"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceAlignment(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!isPostgres()) {
+            return;
+        }
+        SEQUENCES.forEach((sequence, table) -> {
+            Long value = jdbcTemplate.queryForObject(
+                    "SELECT setval('" + sequence + "', GREATEST((SELECT COALESCE(MAX(id), 0) FROM " + table + "), " +
+                            "(SELECT last_value FROM " + sequence + "), 1))", Long.class);
+            log.debug("Sequenza {} allineata a {}", sequence, value);
+        });
+    }
+
+    private boolean isPostgres() {
+        Boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        return Boolean.TRUE.equals(postgres);
+    }
+}
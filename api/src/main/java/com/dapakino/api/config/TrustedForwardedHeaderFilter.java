@@ -0,0 +1,100 @@
+package com.dapakino.api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.ForwardedHeaderFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+// server.forward-headers-strategy=framework, ma di X-Forwarded-For ci fidiamo solo per i proxy nostri.
+// ForwardedHeaderFilter prende il PRIMO indirizzo della lista, che il client può scrivere come vuole
+// (e con un indirizzo inventato a ogni richiesta avrebbe un secchio nuovo nel RateLimiter).
+// Ogni proxy aggiunge in fondo chi gli si è collegato: con N proxy fidati davanti all'app il cliente vero
+// è l'N-esimo da destra. Qui la lista viene ridotta a quell'indirizzo prima che la legga il filtro di Spring.
+// Con trusted-hops=0 (nessun proxy) X-Forwarded-For e Forwarded vengono ignorati.
+public class TrustedForwardedHeaderFilter extends ForwardedHeaderFilter {
+
+    static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    static final String FORWARDED = "Forwarded";
+
+    private final int trustedHops;
+
+    public TrustedForwardedHeaderFilter(int trustedHops) {
+        this.trustedHops = Math.max(0, trustedHops);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        super.doFilterInternal(new TrustedHops(request, clientAddress(forwardedFor(request), trustedHops)),
+                response, filterChain);
+    }
+
+    // L'indirizzo aggiunto dal proxy fidato più esterno; null se la catena non arriva fin lì o non c'è
+    static String clientAddress(List<String> forwardedFor, int trustedHops) {
+        if (trustedHops <= 0 || forwardedFor.size() < trustedHops) {
+            return null;
+        }
+        return forwardedFor.get(forwardedFor.size() - trustedHops);
+    }
+
+    // Tutte le righe X-Forwarded-For in ordine, una voce per indirizzo
+    static List<String> forwardedFor(HttpServletRequest request) {
+        List<String> addresses = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(X_FORWARDED_FOR);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String address : headers.nextElement().split(",")) {
+                if (!address.isBlank()) {
+                    addresses.add(address.trim());
+                }
+            }
+        }
+        return addresses;
+    }
+
+    // Stessa richiesta con X-Forwarded-For ridotto al solo cliente e senza Forwarded (i nostri proxy non lo usano)
+    private static final class TrustedHops extends HttpServletRequestWrapper {
+
+        private final String client;
+
+        TrustedHops(HttpServletRequest request, String client) {
+            super(request);
+            this.client = client;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (X_FORWARDED_FOR.equalsIgnoreCase(name)) {
+                return client;
+            }
+            return FORWARDED.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (X_FORWARDED_FOR.equalsIgnoreCase(name)) {
+                return client == null ? Collections.emptyEnumeration() : Collections.enumeration(List.of(client));
+            }
+            return FORWARDED.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            for (String name : Collections.list(super.getHeaderNames())) {
+                boolean forwardedFor = X_FORWARDED_FOR.equalsIgnoreCase(name);
+                if ((!forwardedFor || client != null) && !FORWARDED.equalsIgnoreCase(name)) {
+                    names.add(name);
+                }
+            }
+            return Collections.enumeration(names);
+        }
+    }
+}
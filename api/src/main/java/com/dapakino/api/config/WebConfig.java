@@ -1,12 +1,55 @@
 package com.dapakino.api.config;
 
+import com.dapakino.api.security.SessionAccessInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final DbBulkheadInterceptor dbBulkheadInterceptor;
+    private final RequestMetricsInterceptor requestMetricsInterceptor;
+    private final ReadYourWritesInterceptor readYourWritesInterceptor;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final SessionAccessInterceptor sessionAccessInterceptor;
+
+    public WebConfig(DbBulkheadInterceptor dbBulkheadInterceptor, RequestMetricsInterceptor requestMetricsInterceptor,
+                     ReadYourWritesInterceptor readYourWritesInterceptor, RateLimitInterceptor rateLimitInterceptor,
+                     SessionAccessInterceptor sessionAccessInterceptor) {
+        this.dbBulkheadInterceptor = dbBulkheadInterceptor;
+        this.requestMetricsInterceptor = requestMetricsInterceptor;
+        this.readYourWritesInterceptor = readYourWritesInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.sessionAccessInterceptor = sessionAccessInterceptor;
+    }
+
+    // Prende il posto del ForwardedHeaderFilter che Boot registra con forward-headers-strategy=framework
+    @Bean
+    public FilterRegistrationBean<TrustedForwardedHeaderFilter> forwardedHeaderFilter(
+            @Value("${dapakino.proxy.trusted-hops:0}") int trustedHops) {
+        FilterRegistrationBean<TrustedForwardedHeaderFilter> registration =
+                new FilterRegistrationBean<>(new TrustedForwardedHeaderFilter(trustedHops));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestMetricsInterceptor).addPathPatterns("/api/**");
+        // Accesso (token) prima di tutto il resto: un 401/403 non consuma limiti né permessi del DB
+        registry.addInterceptor(sessionAccessInterceptor).addPathPatterns("/api/**");
+        // Prima il limite per cliente, poi il bulkhead: chi è oltre il limite non occupa permessi del DB
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(dbBulkheadInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(readYourWritesInterceptor).addPathPatterns("/api/**");
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -16,6 +59,7 @@ public class WebConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS") // <--- DELETE DEVE ESSERCI
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Cursor", "X-Auth-Token", "Retry-After") // Cursore storico ordini + token di sessione + attesa dopo un 429
                 .allowCredentials(true);
     }
 }
\ No newline at end of file
@@ -1,15 +1,16 @@
 package com.dapakino.api.controller;
 
+import com.dapakino.api.config.DbAccess;
 import com.dapakino.api.model.User;
 import com.dapakino.api.repository.UserRepository;
+import com.dapakino.api.security.SessionPrincipal;
+import com.dapakino.api.security.SessionTokenFilter;
+import com.dapakino.api.security.SessionTokenService;
+import com.dapakino.api.service.GoogleIdTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
-import java.util.Collections;
 import java.util.Map;
 
 import java.util.Optional;
@@ -19,20 +20,25 @@ import java.util.Optional;
 
 public class AuthController {
 
-    private static final String GOOGLE_CLIENT_ID = "140754229284-3rkmo3sajoug1tg21mptbvnivj7to435.apps.googleusercontent.com";
+    public static final String TOKEN_HEADER = "X-Auth-Token";
 
+    // Verificatore unico con chiavi Google in cache (vedi GoogleIdTokenService)
+    @Autowired
+    private GoogleIdTokenService googleIdTokens;
+
+    // Token di sessione firmato, restituito nell'header X-Auth-Token (il body resta l'utente)
+    @Autowired
+    private SessionTokenService sessionTokens;
+
+    @DbAccess(DbAccess.Kind.WRITE)
     @PostMapping("/google")
     public ResponseEntity<?> googleLogin(@RequestBody Map<String, String> body) {
         String token = body.get("token");
 
         try {
-            GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), new GsonFactory())
-                    .setAudience(Collections.singletonList(GOOGLE_CLIENT_ID))
-                    .build();
-
-            GoogleIdToken idToken = verifier.verify(token);
-            if (idToken != null) {
-                GoogleIdToken.Payload payload = idToken.getPayload();
+            Optional<GoogleIdToken.Payload> verified = googleIdTokens.verify(token);
+            if (verified.isPresent()) {
+                GoogleIdToken.Payload payload = verified.get();
 
                 String email = payload.getEmail();
                 String firstName = (String) payload.get("given_name");
@@ -43,7 +49,7 @@ public class AuthController {
 
                 if (existingUser.isPresent()) {
                     // LOGIN: Utente trovato, lo restituiamo
-                    return ResponseEntity.ok(existingUser.get());
+                    return withSession(existingUser.get());
                 } else {
                     // REGISTRAZIONE AUTOMATICA
                     User newUser = new User();
@@ -55,7 +61,7 @@ public class AuthController {
                     newUser.setPhone("");
 
                     userRepository.save(newUser);
-                    return ResponseEntity.ok(newUser);
+                    return withSession(newUser);
                 }
             } else {
                 return ResponseEntity.status(401).body("Token Google non valido");
@@ -67,7 +73,8 @@ public class AuthController {
     @Autowired
     private UserRepository userRepository;
 
- @PostMapping("/register")
+    @DbAccess(DbAccess.Kind.WRITE)
+    @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody User user) {
         // 1. Controllo se l'email esiste già
         if(userRepository.findByEmail(user.getEmail()).isPresent()) {
@@ -90,23 +97,40 @@ public class AuthController {
 
         // 3. Salvataggio
         try {
-            return ResponseEntity.ok(userRepository.save(user));
+            return withSession(userRepository.save(user));
         } catch (Exception e) {
             e.printStackTrace(); 
             return ResponseEntity.status(500).body("Errore nel salvataggio: " + e.getMessage());
         }
     }
 
+    @DbAccess(DbAccess.Kind.READ)
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody User loginData) {
         Optional<User> user = userRepository.findByEmail(loginData.getEmail());
 
         if(user.isPresent() && user.get().getPassword().equals(loginData.getPassword())) {
-            return ResponseEntity.ok(user.get());
+            return withSession(user.get());
         }
         return ResponseEntity.status(401).body("Credenziali non valide");
     }
 
+    // Logout: il token finisce nella lista dei revocati fino alla sua scadenza
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestAttribute(name = SessionTokenFilter.PRINCIPAL_ATTRIBUTE, required = false) SessionPrincipal principal) {
+        if (principal != null) {
+            sessionTokens.revoke(principal);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<User> withSession(User user) {
+        return ResponseEntity.ok()
+                .header(TOKEN_HEADER, sessionTokens.issue(user))
+                .body(user);
+    }
+
+    @DbAccess(DbAccess.Kind.WRITE)
     @PutMapping("/update-profile/{id}")
     public ResponseEntity<?> updateProfile(@PathVariable Long id, @RequestBody User userData) {
         return userRepository.findById(id).map(user -> {
@@ -124,6 +148,7 @@ public class AuthController {
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    @DbAccess(DbAccess.Kind.WRITE)
     @PutMapping("/{id}")
     public ResponseEntity<?> updateUser(@PathVariable Long id, @RequestBody User userData) {
         return userRepository.findById(id).map(user -> {
@@ -1,23 +1,28 @@
 package com.dapakino.api.controller;
 
-import com.dapakino.api.model.Category;
-import com.dapakino.api.repository.CategoryRepository;
+import com.dapakino.api.service.MenuSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/categories")
 public class CategoryController {
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private MenuSnapshotService menuSnapshot;
 
     @GetMapping
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    public ResponseEntity<byte[]> getAllCategories() {
+        MenuSnapshotService.Entry entry = menuSnapshot.get().categories();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(entry.etag())
+                .body(entry.json());
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.dapakino.api.controller;
+
+import com.dapakino.api.service.MenuSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Menu pubblico già diviso per categoria: al sito basta questa chiamata (niente /products + /categories)
+@RestController
+@RequestMapping("/api/menu")
+public class MenuController {
+
+    @Autowired
+    private MenuSnapshotService menuSnapshot;
+
+    @GetMapping
+    public ResponseEntity<byte[]> getMenu() {
+        MenuSnapshotService.Entry entry = menuSnapshot.get().menu();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(entry.etag())
+                .body(entry.json());
+    }
+}
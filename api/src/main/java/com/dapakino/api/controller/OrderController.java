@@ -1,13 +1,42 @@
 package com.dapakino.api.controller;
 
+import com.dapakino.api.config.DbAccess;
+import com.dapakino.api.config.RateLimited;
+import com.dapakino.api.config.ReadYourWritesInterceptor;
+import com.dapakino.api.dto.CursorPage;
+import com.dapakino.api.dto.KitchenOrderView;
+import com.dapakino.api.dto.OrderCursor;
+import com.dapakino.api.dto.OrderSearch;
+import com.dapakino.api.dto.StatusBatchRequest;
 import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderItem;
+import com.dapakino.api.model.User;
 import com.dapakino.api.repository.OrderRepository;
+import com.dapakino.api.security.SessionPrincipal;
+import com.dapakino.api.security.SessionTokenFilter;
+import com.dapakino.api.service.ActiveOrderStore;
+import com.dapakino.api.service.DeliveryFees;
+import com.dapakino.api.service.IdempotencyService;
+import com.dapakino.api.service.IngestUnavailableException;
+import com.dapakino.api.service.KitchenEventService;
+import com.dapakino.api.service.OrderIngestService;
+import com.dapakino.api.service.OrderService;
+import com.dapakino.api.service.SlotCapacityService;
+import com.dapakino.api.service.SlotUnavailableException;
+import com.dapakino.api.service.StatusConflictException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.math.BigDecimal;
+import java.net.URI;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.*;
 
 @RestController
@@ -18,75 +47,241 @@ public class OrderController {
     @Autowired
     private OrderRepository orderRepository;
 
-    // Configurazione: Massimo 5 ordini ogni 15 minuti
-    private static final int MAX_ORDERS_PER_SLOT = 5;
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SlotCapacityService slotCapacity;
+
+    @Autowired
+    private KitchenEventService kitchenEvents;
+
+    @Autowired
+    private ActiveOrderStore activeOrders;
+
+    @Autowired
+    private OrderIngestService orderIngest;
+
+    @Autowired
+    private IdempotencyService idempotency;
 
+    @Autowired
+    private DeliveryFees deliveryFees;
+
+    // Storico a pagine: la risposta resta una lista, il cursore per la pagina dopo è nell'header X-Next-Cursor
+    @DbAccess(DbAccess.Kind.READ)
+    @RateLimited(RateLimited.Group.BROWSE)
     @GetMapping("/user/{userId}")
-    public List<Order> getUserOrders(@PathVariable Long userId) {
-        return orderRepository.findByUserIdOrderByOrderDateDesc(userId);
+    public ResponseEntity<?> getUserOrders(@PathVariable Long userId,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "50") int limit) {
+        try {
+            OrderCursor after = cursor == null ? null : OrderCursor.decode(cursor);
+            CursorPage<Order> page = orderService.userHistory(userId, after, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header("X-Next-Cursor", page.nextCursor());
+            }
+            return response.body(page.items());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
+    // Ricerca admin: filtri opzionali su stato, intervallo di date (from incluso, to incluso) e fascia oraria
+    @DbAccess(DbAccess.Kind.READ)
+    @RateLimited(RateLimited.Group.KITCHEN)
+    @GetMapping("/search")
+    public ResponseEntity<?> searchOrders(@RequestParam(required = false) String status,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(required = false) String deliveryTime,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "50") int limit) {
+        try {
+            OrderSearch search = new OrderSearch(
+                    status,
+                    from == null ? null : from.atStartOfDay(),
+                    to == null ? null : to.plusDays(1).atStartOfDay(),
+                    deliveryTime,
+                    cursor == null ? null : OrderCursor.decode(cursor));
+            return ResponseEntity.ok(orderService.search(search, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Idempotency-Key (facoltativa, generata dal client per ogni checkout): i ritentativi con la stessa chiave
+    // ricevono la risposta originale, senza un secondo ordine. Le chiavi sono per chiamante (sessione, o IP
+    // senza sessione): chi conosce la chiave di un altro non ne legge la risposta
+    @DbAccess(DbAccess.Kind.WRITE)
+    @RateLimited(RateLimited.Group.SUBMIT)
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestBody Order order) {
-        if (order.getStatus() == null) {
-            order.setStatus("INVIATO");
+    public ResponseEntity<?> createOrder(@RequestBody Order order,
+                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                         @RequestAttribute(name = SessionTokenFilter.PRINCIPAL_ATTRIBUTE, required = false) SessionPrincipal principal,
+                                         HttpServletRequest request) {
+        // Un cliente ordina solo per sé: l'utente è quello del token, non quello scritto nel body.
+        // Lo staff può registrare un ordine per un cliente (telefono), quindi per lui vale il body
+        if (principal != null && !principal.isStaff()) {
+            User owner = new User();
+            owner.setId(principal.userId());
+            order.setUser(owner);
+        }
+        if (idempotencyKey == null) {
+            order.setSubmissionKey(null); // La chiave la decide solo l'header
+            return submitOrder(order);
         }
-        // Assicuriamoci che orderDate sia settato
-        if (order.getOrderDate() == null) {
-            order.setOrderDate(LocalDateTime.now());
+        if (!IdempotencyService.isValidKey(idempotencyKey)) {
+            return ResponseEntity.badRequest().body("Idempotency-Key non valida (max " + IdempotencyService.MAX_KEY_LENGTH + " caratteri)");
         }
-        Order savedOrder = orderRepository.save(order);
-        return ResponseEntity.ok(savedOrder);
+        order.setSubmissionKey(idempotencyKey);
+        return idempotency.execute(ReadYourWritesInterceptor.client(request) + ":" + idempotencyKey, () -> submitOrder(order));
     }
 
+    private ResponseEntity<?> submitOrder(Order order) {
+        try {
+            if (orderIngest.isEnabled()) {
+                // Modalità outbox: ordine al sicuro nel journal, sul DB arriva poco dopo (vedi /submissions/{key})
+                String key = orderIngest.submit(order);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/orders/submissions/" + key))
+                        .body(Map.of("submissionKey", key, "status", OrderIngestService.PENDING));
+            }
+            Order savedOrder = orderService.placeOrder(order);
+            return ResponseEntity.ok(savedOrder);
+        } catch (SlotUnavailableException e) {
+            // Fascia piena: il cliente deve sceglierne un'altra (il messaggio indica la prima libera, vedi /slots)
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IngestUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Esito di un ordine inviato in modalità outbox: 202 finché è in coda, 200 con l'ordine quando è sul DB
+    @DbAccess(DbAccess.Kind.READ)
+    @RateLimited(RateLimited.Group.BROWSE)
+    @GetMapping("/submissions/{key}")
+    public ResponseEntity<?> getSubmission(@PathVariable String key) {
+        Optional<OrderIngestService.Submission> inMemory = orderIngest.pendingSubmission(key);
+        if (inMemory.isPresent()) {
+            OrderIngestService.Submission submission = inMemory.get();
+            return OrderIngestService.PENDING.equals(submission.status())
+                    ? ResponseEntity.accepted().body(submission)
+                    : ResponseEntity.unprocessableEntity().body(submission);
+        }
+        return orderRepository.findBySubmissionKey(key)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Gli endpoint della cucina rispondono dagli ordini attivi in memoria (ActiveOrderStore): zero query
+    @RateLimited(RateLimited.Group.KITCHEN)
     @GetMapping("/kitchen")
-    public List<Order> getKitchenOrders() {
-        return orderRepository.findByStatusInOrderByOrderDateAsc(
-                Arrays.asList("INVIATO", "IN_PREPARAZIONE","IN_CONSEGNA")
-        );
+    public List<KitchenOrderView> getKitchenOrders(@RequestParam(required = false) String status) {
+        return status == null ? activeOrders.all() : activeOrders.byStatus(status);
+    }
+
+    // Ordini attivi raggruppati per fascia di consegna ("19:30" -> ordini), di default oggi
+    @RateLimited(RateLimited.Group.KITCHEN)
+    @GetMapping("/kitchen/slots")
+    public Map<String, List<KitchenOrderView>> getKitchenSlots(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return activeOrders.slotsOf(date == null ? LocalDate.now() : date);
+    }
+
+    // Da consegnare entro i prossimi "minutes" minuti, compresi quelli già in ritardo
+    @RateLimited(RateLimited.Group.KITCHEN)
+    @GetMapping("/kitchen/due")
+    public ResponseEntity<?> getKitchenDue(@RequestParam(defaultValue = "30") int minutes) {
+        if (minutes < 0 || minutes > 24 * 60) {
+            return ResponseEntity.badRequest().body("minutes deve essere tra 0 e 1440");
+        }
+        return ResponseEntity.ok(activeOrders.dueBy(LocalDateTime.now().plusMinutes(minutes)));
+    }
+
+    // Stream SSE per i tablet: snapshot iniziale + variazioni, ripresa con Last-Event-ID
+    @RateLimited(RateLimited.Group.KITCHEN)
+    @GetMapping(value = "/kitchen/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamKitchenOrders(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return kitchenEvents.subscribe(lastEventId);
     }
 
+    // "version" facoltativa nel body: se non coincide con quella sul DB l'ordine è già stato toccato -> 409
+    @DbAccess(DbAccess.Kind.WRITE)
+    @RateLimited(RateLimited.Group.KITCHEN)
     @PatchMapping("/{id}/status")
-    public ResponseEntity<Order> updateStatus(@PathVariable Long id, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> updateStatus(@PathVariable Long id, @RequestBody Map<String, Object> body) {
         String newStatus = (String) body.get("status");
         String newTime = (String) body.get("deliveryTime"); // Leggiamo il nuovo orario se c'è
+        Long expectedVersion = body.get("version") instanceof Number n ? n.longValue() : null;
 
-        return orderRepository.findById(id).map(order -> {
-            if (newStatus != null) order.setStatus(newStatus);
-            if (newTime != null) order.setDeliveryTime(newTime); // Aggiorna l'orario
-            return ResponseEntity.ok(orderRepository.save(order));
-        }).orElse(ResponseEntity.notFound().build());
+        try {
+            return orderService.updateStatus(id, newStatus, newTime, expectedVersion)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Ordine modificato nel frattempo, ricarica");
+        } catch (StatusConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Avanzamento di un'infornata intera: { "ids": [..], "from": "INVIATO", "to": "IN_PREPARAZIONE" }
+    @DbAccess(DbAccess.Kind.WRITE)
+    @RateLimited(RateLimited.Group.KITCHEN)
+    @PostMapping("/status/batch")
+    public ResponseEntity<?> updateStatusBatch(@RequestBody StatusBatchRequest request) {
+        try {
+            return ResponseEntity.ok(orderService.updateStatusBatch(request.ids(), request.from(), request.to()));
+        } catch (StatusConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage(), "conflicts", e.getOrderIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     // --- NUOVO: GESTIONE SLOT ---
 
+    // Fasce in cui entra il carrello ("idProdotto:quantità,..."; senza carrello basta un pezzo di posto).
+    // La prima della lista è la consegna più vicina possibile
+    @DbAccess(DbAccess.Kind.READ)
+    @RateLimited(RateLimited.Group.BROWSE)
     @GetMapping("/slots")
-    public List<String> getAvailableSlots() {
-        List<String> allSlots = generateSlots("18:30", "22:30", 15);
-        List<String> availableSlots = new ArrayList<>();
-
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        LocalDateTime endOfDay = LocalDate.now().atTime(LocalTime.MAX);
-
-        for (String slot : allSlots) {
-            int currentOrders = orderRepository.countOrdersByTime(slot, startOfDay, endOfDay);
-            if (currentOrders < MAX_ORDERS_PER_SLOT) {
-                availableSlots.add(slot);
-            }
+    public ResponseEntity<?> getAvailableSlots(@RequestParam(required = false) String cart) {
+        try {
+            int units = cart == null || cart.isBlank() ? 1 : slotCapacity.units(parseCart(cart));
+            return ResponseEntity.ok(slotCapacity.availableSlots(LocalDate.now(), units));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Carrello non valido: " + cart);
         }
-        return availableSlots;
     }
 
-    // Helper per generare orari (es. 18:30, 18:45, 19:00...)
-    private List<String> generateSlots(String start, String end, int stepMinutes) {
-        List<String> slots = new ArrayList<>();
-        LocalTime startTime = LocalTime.parse(start);
-        LocalTime endTime = LocalTime.parse(end);
+    // Comuni serviti e costo di consegna: il carrello li mostra, il prezzo della riga lo rimette comunque il server
+    @RateLimited(RateLimited.Group.BROWSE)
+    @GetMapping("/delivery-fees")
+    public Map<String, BigDecimal> getDeliveryFees() {
+        return deliveryFees.all();
+    }
 
-        while (!startTime.isAfter(endTime)) {
-            slots.add(startTime.toString());
-            startTime = startTime.plusMinutes(stepMinutes);
+    private static List<OrderItem> parseCart(String cart) {
+        List<OrderItem> items = new ArrayList<>();
+        for (String entry : cart.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(entry);
+            }
+            int quantity = Integer.parseInt(parts[1].trim());
+            if (quantity <= 0) {
+                throw new IllegalArgumentException(entry);
+            }
+            items.add(OrderItem.builder().productId(Long.valueOf(parts[0].trim())).quantity(quantity).build());
         }
-        return slots;
+        return items;
     }
 }
\ No newline at end of file
@@ -1,12 +1,21 @@
 package com.dapakino.api.controller;
 
+import com.dapakino.api.config.DbAccess;
 import com.dapakino.api.model.Product;
 import com.dapakino.api.repository.ProductRepository;
+import com.dapakino.api.service.MenuImportException;
+import com.dapakino.api.service.MenuImportService;
+import com.dapakino.api.service.MenuSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -15,20 +24,51 @@ public class ProductController {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private MenuSnapshotService menuSnapshot;
+
+    @Autowired
+    private MenuImportService menuImport;
+
+    // Servito dalla fotografia in memoria: con If-None-Match uguale all'ETag risponde 304
     @GetMapping
-    public List<Product> getAllProducts(@RequestParam(required = false, defaultValue = "false") boolean includeAll) {
-        if (includeAll) {
-            return productRepository.findAll();
-        }
-        return productRepository.findByAvailableTrue();
+    public ResponseEntity<byte[]> getAllProducts(@RequestParam(required = false, defaultValue = "false") boolean includeAll) {
+        MenuSnapshotService.Snapshot snapshot = menuSnapshot.get();
+        MenuSnapshotService.Entry entry = includeAll ? snapshot.allProducts() : snapshot.availableProducts();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(entry.etag())
+                .body(entry.json());
+    }
+
+    // Ricerca per ingredienti sull'indice in memoria, nessuna query:
+    // /search?q=pizza&with=gorgonzola&without=maiale (with/without ripetibili o separati da virgola)
+    @GetMapping("/search")
+    public List<Product> searchProducts(@RequestParam(required = false) String q,
+                                        @RequestParam(required = false) List<String> with,
+                                        @RequestParam(required = false) List<String> without,
+                                        @RequestParam(required = false, defaultValue = "false") boolean includeAll) {
+        return menuSnapshot.get().search().search(q, with, without, includeAll);
     }
 
+    // Autocompletamento: parole del menu che iniziano con il prefisso (senza badare agli accenti)
+    @GetMapping("/suggest")
+    public List<String> suggest(@RequestParam String prefix,
+                                @RequestParam(defaultValue = "8") int limit) {
+        return menuSnapshot.get().search().suggest(prefix, Math.min(limit, 20));
+    }
+
+    @DbAccess(DbAccess.Kind.WRITE)
     @PostMapping
     public Product createProduct(@RequestBody Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        menuSnapshot.invalidate();
+        return saved;
     }
 
     // --- AGGIUNGI QUESTO METODO PUT PER L'AGGIORNAMENTO ---
+    @DbAccess(DbAccess.Kind.WRITE)
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails) {
         return productRepository.findById(id).map(product -> {
@@ -45,20 +85,41 @@ public class ProductController {
                 product.setImageUrl(productDetails.getImageUrl());
             }
 
-            return ResponseEntity.ok(productRepository.save(product));
+            Product saved = productRepository.save(product);
+            menuSnapshot.invalidate();
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    @DbAccess(DbAccess.Kind.WRITE)
     @PatchMapping("/{id}/toggle-availability")
     public ResponseEntity<Product> toggleAvailability(@PathVariable Long id) {
         return productRepository.findById(id).map(product -> {
             product.setAvailable(!product.isAvailable());
-            return ResponseEntity.ok(productRepository.save(product));
+            Product saved = productRepository.save(product);
+            menuSnapshot.invalidate();
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    @DbAccess(DbAccess.Kind.WRITE)
     @DeleteMapping("/{id}")
     public void deleteProduct(@PathVariable Long id) {
         productRepository.deleteById(id);
+        menuSnapshot.invalidate();
+    }
+
+    // Import massivo del menu (JSON o CSV, vedi MenuImportService): tutto o niente, in una transazione
+    @DbAccess(DbAccess.Kind.WRITE)
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public ResponseEntity<?> importMenu(@RequestHeader("Content-Type") String contentType, InputStream body) throws IOException {
+        try {
+            if (contentType.startsWith("text/csv")) {
+                return ResponseEntity.ok(menuImport.importCsv(body));
+            }
+            return ResponseEntity.ok(menuImport.importJson(body));
+        } catch (MenuImportException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage(), "errors", e.getErrors()));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package com.dapakino.api.controller;
+
+import com.dapakino.api.config.DbAccess;
+import com.dapakino.api.repository.DailySalesRepository;
+import com.dapakino.api.repository.ProductSalesRepository;
+import com.dapakino.api.repository.SlotSalesRepository;
+import com.dapakino.api.security.SessionPrincipal;
+import com.dapakino.api.security.SessionTokenFilter;
+import com.dapakino.api.service.OrderExportService;
+import com.dapakino.api.service.SalesRollupService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPOutputStream;
+
+// Report vendite per l'admin: leggono SOLO i rollup (sales_*), mai la tabella degli ordini.
+// Intervallo di date inclusivo; di default gli ultimi 30 giorni, al massimo un anno.
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+
+    private static final int MAX_RANGE_DAYS = 366;
+
+    @Autowired
+    private DailySalesRepository dailySales;
+
+    @Autowired
+    private SlotSalesRepository slotSales;
+
+    @Autowired
+    private ProductSalesRepository productSales;
+
+    @Autowired
+    private SalesRollupService salesRollups;
+
+    @Autowired
+    private OrderExportService orderExport;
+
+    @DbAccess(DbAccess.Kind.READ)
+    @GetMapping("/daily")
+    public ResponseEntity<?> daily(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return inRange(from, to, dailySales::findByDayBetweenOrderByDay);
+    }
+
+    @DbAccess(DbAccess.Kind.READ)
+    @GetMapping("/slots")
+    public ResponseEntity<?> slots(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return inRange(from, to, slotSales::report);
+    }
+
+    @DbAccess(DbAccess.Kind.READ)
+    @GetMapping("/products")
+    public ResponseEntity<?> products(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return inRange(from, to, productSales::reportByProduct);
+    }
+
+    @DbAccess(DbAccess.Kind.READ)
+    @GetMapping("/categories")
+    public ResponseEntity<?> categories(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return inRange(from, to, productSales::reportByCategory);
+    }
+
+    // Ricostruzione dei rollup dallo storico in background (senza date = tutto lo storico fino a ieri).
+    // Il giorno in corso non si ricostruisce: lo tengono aggiornato gli incrementi
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> rebuild(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            if (!salesRollups.startRebuild(from, to)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Ricostruzione già in corso");
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    // Tutti gli ordini del periodo (attivi + archivio) per il commercialista, scritti sulla risposta mentre si leggono:
+    // NDJSON = un ordine per riga con cliente e righe, CSV = una riga per prodotto; gzip=true -> file .gz.
+    // Niente @DbAccess: l'esportazione può durare minuti e legge a blocchi brevi, senza tenere un permesso del bulkhead.
+    // Contiene i dati personali di tutti i clienti: serve un token staff SEMPRE, anche con dapakino.session.enforce=false
+    @GetMapping("/orders/export")
+    public void exportOrders(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             @RequestParam(defaultValue = "ndjson") String format,
+                             @RequestParam(defaultValue = "false") boolean gzip,
+                             @RequestAttribute(name = SessionTokenFilter.PRINCIPAL_ATTRIBUTE, required = false) SessionPrincipal principal,
+                             HttpServletResponse response) throws IOException {
+        if (principal == null) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Accesso riservato allo staff");
+            return;
+        }
+        if (!principal.isStaff()) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Accesso riservato allo staff");
+            return;
+        }
+        OrderExportService.Format type;
+        try {
+            type = OrderExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Intervallo di date non valido (massimo " + MAX_RANGE_DAYS + " giorni)");
+            return;
+        }
+
+        String filename = "ordini-" + from + "-" + to + (type == OrderExportService.Format.CSV ? ".csv" : ".ndjson");
+        response.setContentType(type == OrderExportService.Format.CSV ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        if (gzip) {
+            filename += ".gz";
+            response.setContentType("application/gzip");
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024) : response.getOutputStream();
+        if (!orderExport.export(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), type, out)) {
+            response.reset();
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Esportazione già in corso, riprova tra poco");
+        }
+    }
+
+    private ResponseEntity<?> inRange(LocalDate from, LocalDate to, BiFunction<LocalDate, LocalDate, ?> query) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) >= MAX_RANGE_DAYS) {
+            return ResponseEntity.badRequest().body("Intervallo di date non valido (massimo " + MAX_RANGE_DAYS + " giorni)");
+        }
+        return ResponseEntity.ok(query.apply(start, end));
+    }
+}
@@ -0,0 +1,10 @@
+package com.dapakino.api.dto;
+
+import java.math.BigDecimal;
+
+// Pezzi venduti e incasso di una categoria su un intervallo di giorni
+public record CategoryReport(
+        String categoryName,
+        Long quantity,
+        BigDecimal revenue
+) {}
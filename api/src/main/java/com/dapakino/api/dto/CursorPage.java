@@ -0,0 +1,6 @@
+package com.dapakino.api.dto;
+
+import java.util.List;
+
+// Una pagina di risultati + il cursore per chiedere la successiva (null se finita)
+public record CursorPage<T>(List<T> items, String nextCursor) {}
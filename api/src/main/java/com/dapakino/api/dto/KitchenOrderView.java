@@ -0,0 +1,28 @@
+package com.dapakino.api.dto;
+
+import com.dapakino.api.model.Order;
+
+import java.time.LocalDateTime;
+
+// Versione "leggera" dell'ordine per i tablet della cucina: niente User annidato
+public record KitchenOrderView(
+        Long id,
+        LocalDateTime orderDate,
+        String deliveryTime,
+        Double totalAmount,
+        String orderDetails,
+        String status,
+        Long version
+) {
+    public static KitchenOrderView from(Order order) {
+        return new KitchenOrderView(
+                order.getId(),
+                order.getOrderDate(),
+                order.getDeliveryTime(),
+                order.getTotalAmount(),
+                order.getOrderDetails(),
+                order.getStatus(),
+                order.getVersion()
+        );
+    }
+}
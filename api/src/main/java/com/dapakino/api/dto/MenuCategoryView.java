@@ -0,0 +1,23 @@
+package com.dapakino.api.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Una sezione del menu: la categoria con i suoi prodotti disponibili (risposta di GET /api/menu)
+public record MenuCategoryView(
+        Long id,
+        String name,
+        List<MenuItemView> products
+) {
+    // Le righe arrivano già ordinate per categoria: basta raggrupparle mantenendo l'ordine
+    public static List<MenuCategoryView> group(List<MenuItemView> items) {
+        Map<Long, MenuCategoryView> sections = new LinkedHashMap<>();
+        for (MenuItemView item : items) {
+            sections.computeIfAbsent(item.categoryId(),
+                    id -> new MenuCategoryView(id, item.categoryName(), new ArrayList<>())).products().add(item);
+        }
+        return List.copyOf(sections.values());
+    }
+}
@@ -0,0 +1,9 @@
+package com.dapakino.api.dto;
+
+// Esito dell'import menu: i prodotti non presenti nel file restano come sono
+public record MenuImportResult(
+        int categoriesCreated,
+        int productsCreated,
+        int productsUpdated,
+        int productsUnchanged
+) {}
@@ -0,0 +1,19 @@
+package com.dapakino.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+// Una riga del file di import menu (JSON o CSV): la categoria è indicata per nome e viene creata se manca.
+// available / isMonthlySpecial a null = lascia il valore attuale (o il default per i prodotti nuovi)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record MenuImportRow(
+        String category,
+        String name,
+        String description,
+        BigDecimal price,
+        String imageUrl,
+        Boolean available,
+        @JsonProperty("isMonthlySpecial") Boolean monthlySpecial
+) {}
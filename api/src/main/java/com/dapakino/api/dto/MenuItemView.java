@@ -0,0 +1,19 @@
+package com.dapakino.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+// Prodotto del menu pubblico, letto con una sola JOIN (constructor expression in ProductRepository.findMenu):
+// niente entità gestite, niente snapshot per il dirty checking. La categoria serve solo a raggruppare
+public record MenuItemView(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price,
+        String imageUrl,
+        @JsonProperty("isMonthlySpecial") boolean monthlySpecial,
+        @JsonIgnore Long categoryId,
+        @JsonIgnore String categoryName
+) {}
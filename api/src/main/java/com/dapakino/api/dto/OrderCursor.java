@@ -0,0 +1,32 @@
+package com.dapakino.api.dto;
+
+import com.dapakino.api.model.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Posizione nella lista ordini (orderDate, id), passata al client come stringa opaca.
+// La pagina successiva riparte da qui con una WHERE sull'indice: niente OFFSET che rallenta col tempo.
+public record OrderCursor(LocalDateTime orderDate, Long id) {
+
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.getOrderDate(), order.getId());
+    }
+
+    public String encode() {
+        String raw = orderDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursore non valido");
+        }
+    }
+}
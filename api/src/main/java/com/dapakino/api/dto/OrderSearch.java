@@ -0,0 +1,12 @@
+package com.dapakino.api.dto;
+
+import java.time.LocalDateTime;
+
+// Filtri della ricerca ordini lato admin: tutti opzionali
+public record OrderSearch(
+        String status,
+        LocalDateTime from,
+        LocalDateTime to,
+        String deliveryTime,
+        OrderCursor after
+) {}
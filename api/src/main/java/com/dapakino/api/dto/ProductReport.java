@@ -0,0 +1,12 @@
+package com.dapakino.api.dto;
+
+import java.math.BigDecimal;
+
+// Pezzi venduti e incasso di un prodotto su un intervallo di giorni
+public record ProductReport(
+        Long productId,
+        String productName,
+        String categoryName,
+        Long quantity,
+        BigDecimal revenue
+) {}
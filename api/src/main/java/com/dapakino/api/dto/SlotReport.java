@@ -0,0 +1,10 @@
+package com.dapakino.api.dto;
+
+import java.math.BigDecimal;
+
+// Totali di una fascia oraria su un intervallo di giorni
+public record SlotReport(
+        String deliveryTime,
+        Long orders,
+        BigDecimal revenue
+) {}
@@ -0,0 +1,10 @@
+package com.dapakino.api.dto;
+
+import java.util.List;
+
+// Avanzamento di un gruppo di ordini (es. un'infornata): tutti devono essere in "from"
+public record StatusBatchRequest(
+        List<Long> ids,
+        String from,
+        String to
+) {}
@@ -0,0 +1,63 @@
+package com.dapakino.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Ordine chiuso spostato nell'archivio (vedi OrderArchiveService). Stesse colonne di "orders"
+// e stesso id; in sola lettura. Lo storico utente lo mostra come un Order normale (toOrder).
+@Entity
+@Immutable
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_user_date", columnList = "user_id, order_date, id"),
+        @Index(name = "idx_orders_archive_date", columnList = "order_date")
+})
+@Getter
+@NoArgsConstructor
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    private LocalDateTime orderDate;
+
+    private String deliveryTime;
+
+    private Double totalAmount;
+
+    @Column(columnDefinition = "TEXT")
+    private String orderDetails;
+
+    private String status;
+
+    private Long version;
+
+    private LocalDateTime archivedAt;
+
+    @OneToMany(mappedBy = "order")
+    @OrderBy("id")
+    private List<ArchivedOrderItem> items = new ArrayList<>();
+
+    public Order toOrder() {
+        Order order = new Order();
+        order.setId(id);
+        order.setUser(user);
+        order.setOrderDate(orderDate);
+        order.setDeliveryTime(deliveryTime);
+        order.setTotalAmount(totalAmount);
+        order.setOrderDetails(orderDetails);
+        order.setStatus(status);
+        order.setVersion(version);
+        for (ArchivedOrderItem item : items) {
+            order.getItems().add(item.toOrderItem(order));
+        }
+        return order;
+    }
+}
@@ -0,0 +1,47 @@
+package com.dapakino.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+
+// Riga di un ordine archiviato: copia di order_items, senza vincolo verso il menu attuale
+@Entity
+@Immutable
+@Table(name = "order_items_archive", indexes = {
+        @Index(name = "idx_order_items_archive_order", columnList = "order_id")
+})
+@Getter
+@NoArgsConstructor
+public class ArchivedOrderItem {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    private ArchivedOrder order;
+
+    private Long productId;
+
+    private String productName;
+
+    private int quantity;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    private String notes;
+
+    public OrderItem toOrderItem(Order owner) {
+        return OrderItem.builder()
+                .id(id)
+                .order(owner)
+                .productId(productId)
+                .productName(productName)
+                .quantity(quantity)
+                .unitPrice(unitPrice)
+                .notes(notes)
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.dapakino.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Totali di una giornata, aggiornati a ogni ordine (vedi SalesRollupService): i report non leggono mai "orders"
+@Entity
+@Table(name = "sales_daily")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySales {
+
+    @Id
+    @Column(name = "sales_day")
+    private LocalDate day;
+
+    private long orderCount; // Ordini validi (esclusi i rifiutati)
+
+    private long rejectedCount;
+
+    @Column(precision = 12, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+}
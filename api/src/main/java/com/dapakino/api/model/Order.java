@@ -1,18 +1,27 @@
 package com.dapakino.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id"), // storico utente
+        @Index(name = "idx_orders_status_date", columnList = "status, order_date"),    // cucina e ricerca per stato
+        @Index(name = "idx_orders_date_slot", columnList = "order_date, delivery_time") // fasce del giorno
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -28,5 +37,26 @@ public class Order {
     @Column(columnDefinition = "TEXT")
     private String orderDetails;
 
-    private String status;
+    private String status; // Valori di OrderStatus
+
+    // Unità di forno prenotate al checkout (vedi SlotCapacityService): si libera esattamente questo valore,
+    // anche se nel frattempo cambiano i costi delle categorie. null = ordine di prima della colonna
+    @JsonIgnore
+    private Integer ovenUnits;
+
+    // Chiave dell'invio (UUID): con l'ingestione a journal è l'identità dell'ordine prima che abbia un id,
+    // e all'avvio permette di rigiocare il journal senza creare doppioni
+    @Column(unique = true, length = 64)
+    private String submissionKey;
+
+    // Lock ottimistico: due tablet che toccano lo stesso ordine non si sovrascrivono in silenzio.
+    // Il default 0 riempie anche le righe già esistenti quando la colonna viene aggiunta
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
+    // Righe d'ordine strutturate (prodotto, quantità, prezzo). orderDetails resta per compatibilità
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    private List<OrderItem> items = new ArrayList<>();
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.dapakino.api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "order_items", indexes = {
+        @Index(name = "idx_order_items_order", columnList = "order_id"),
+        @Index(name = "idx_order_items_product", columnList = "product_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderItem {
+
+    // SEQUENCE (non IDENTITY) così Hibernate può mandare le righe in batch JDBC
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    @JsonIgnore // Evita il loop ordine -> righe -> ordine
+    private Order order;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id")
+    @JsonIgnore
+    private Product product;
+
+    // Stessa colonna in sola lettura: nel JSON basta l'id del prodotto
+    @Column(name = "product_id", insertable = false, updatable = false)
+    private Long productId;
+
+    // Nome e prezzo "fotografati" al momento dell'ordine: il menu può cambiare dopo
+    private String productName;
+
+    private int quantity;
+
+    // Prezzo di UN pezzo com'è stato pagato: prodotto + aggiunte. Le righe senza prodotto ma col prezzo
+    // sono supplementi (es. consegna): così la somma delle righe è il totale dell'ordine
+    @Column(precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    private String notes; // Es. aggiunte scelte dal cliente
+
+    // Solo in ingresso dal carrello: prezzo delle aggiunte per pezzo, finisce dentro unitPrice
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private BigDecimal extrasPrice;
+
+    @JsonIgnore
+    public boolean isSurcharge() {
+        return productId == null && unitPrice != null;
+    }
+}
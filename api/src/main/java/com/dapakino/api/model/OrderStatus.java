@@ -0,0 +1,43 @@
+package com.dapakino.api.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Stati dell'ordine e passaggi ammessi. Sul DB resta la stringa (stessi nomi di prima),
+// ma ogni cambio di stato passa da qui: niente più stati scritti a mano o salti impossibili.
+public enum OrderStatus {
+    INVIATO,
+    IN_PREPARAZIONE,
+    IN_CONSEGNA,
+    COMPLETATO,
+    CONSEGNATO,
+    RIFIUTATO;
+
+    private Set<OrderStatus> next = EnumSet.noneOf(OrderStatus.class);
+
+    static {
+        INVIATO.next = EnumSet.of(IN_PREPARAZIONE, RIFIUTATO);
+        // Un passo indietro è ammesso per correggere un tocco sbagliato sul tablet
+        IN_PREPARAZIONE.next = EnumSet.of(INVIATO, IN_CONSEGNA, COMPLETATO, RIFIUTATO);
+        IN_CONSEGNA.next = EnumSet.of(IN_PREPARAZIONE, COMPLETATO, CONSEGNATO);
+        // COMPLETATO, CONSEGNATO e RIFIUTATO sono finali
+    }
+
+    // Restare nello stesso stato è sempre lecito (es. la cucina cambia solo l'orario)
+    public boolean canMoveTo(OrderStatus target) {
+        return target == this || next.contains(target);
+    }
+
+    // Ancora in carico alla cucina
+    public boolean isActive() {
+        return this == INVIATO || this == IN_PREPARAZIONE || this == IN_CONSEGNA;
+    }
+
+    public static OrderStatus parse(String value) {
+        try {
+            return valueOf(value);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Stato sconosciuto: " + value);
+        }
+    }
+}
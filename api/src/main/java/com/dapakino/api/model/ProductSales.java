@@ -0,0 +1,45 @@
+package com.dapakino.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Pezzi venduti e incasso per prodotto in una giornata. Nome e categoria sono copiati:
+// i report per categoria si fanno raggruppando qui, senza JOIN sul menu attuale
+@Entity
+@Table(name = "sales_product")
+@IdClass(ProductSales.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSales {
+
+    @Id
+    @Column(name = "sales_day")
+    private LocalDate day;
+
+    @Id
+    private Long productId;
+
+    private String productName;
+
+    private String categoryName;
+
+    private long quantity;
+
+    @Column(precision = 12, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long productId;
+    }
+}
@@ -0,0 +1,40 @@
+package com.dapakino.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Totali per fascia oraria di consegna in una giornata
+@Entity
+@Table(name = "sales_slot")
+@IdClass(SlotSales.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotSales {
+
+    @Id
+    @Column(name = "sales_day")
+    private LocalDate day;
+
+    @Id
+    private String deliveryTime;
+
+    private long orderCount;
+
+    @Column(precision = 12, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private String deliveryTime;
+    }
+}
@@ -0,0 +1,55 @@
+package com.dapakino.api.repository;
+
+import com.dapakino.api.dto.OrderCursor;
+import com.dapakino.api.model.ArchivedOrder;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    // Stesso keyset dello storico in "orders": le due liste si fondono in OrderService
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.OrderCursor(o.orderDate, o.id) FROM ArchivedOrder o " +
+            "WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderCursor> findHistoryKeys(@Param("userId") Long userId, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.OrderCursor(o.orderDate, o.id) FROM ArchivedOrder o WHERE o.user.id = :userId " +
+            "AND (o.orderDate < :afterDate OR (o.orderDate = :afterDate AND o.id < :afterId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderCursor> findHistoryKeysAfter(@Param("userId") Long userId, @Param("afterDate") LocalDateTime afterDate,
+                                           @Param("afterId") Long afterId, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT o FROM ArchivedOrder o LEFT JOIN FETCH o.user LEFT JOIN FETCH o.items WHERE o.id IN :ids")
+    List<ArchivedOrder> findWithItemsByIdIn(@Param("ids") List<Long> ids);
+
+    // Ricostruzione dei rollup vendite: stesse somme di OrderRepository/OrderItemRepository, sulla parte archiviata
+    @Query("SELECT COUNT(o) AS total, SUM(CASE WHEN o.status = 'RIFIUTATO' THEN 1 ELSE 0 END) AS rejected, " +
+            "SUM(CASE WHEN o.status = 'RIFIUTATO' THEN 0.0 ELSE o.totalAmount END) AS revenue " +
+            "FROM ArchivedOrder o WHERE o.orderDate >= :start AND o.orderDate < :end")
+    OrderRepository.DayTotals sumDay(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT o.deliveryTime AS deliveryTime, COUNT(o) AS total, SUM(o.totalAmount) AS revenue FROM ArchivedOrder o " +
+            "WHERE o.orderDate >= :start AND o.orderDate < :end AND o.deliveryTime IS NOT NULL " +
+            "AND (o.status IS NULL OR o.status <> 'RIFIUTATO') GROUP BY o.deliveryTime")
+    List<OrderRepository.SlotTotals> sumSlots(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT o.id AS orderId, o.totalAmount AS totalAmount, i.productId AS productId, i.productName AS productName, " +
+            "i.quantity AS quantity, i.unitPrice AS unitPrice FROM ArchivedOrderItem i JOIN i.order o " +
+            "WHERE o.orderDate >= :start AND o.orderDate < :end " +
+            "AND (o.status IS NULL OR o.status <> 'RIFIUTATO') ORDER BY o.id, i.id")
+    List<OrderItemRepository.SoldLine> findSoldLines(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT MIN(o.orderDate) FROM ArchivedOrder o")
+    Optional<LocalDateTime> findFirstOrderDate();
+}
@@ -0,0 +1,30 @@
+package com.dapakino.api.repository;
+
+import com.dapakino.api.model.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, LocalDate> {
+
+    // Incremento atomico lato DB (niente read-modify-write): 0 righe = la giornata non esiste ancora
+    @Modifying
+    @Query("UPDATE DailySales d SET d.orderCount = d.orderCount + :orders, d.rejectedCount = d.rejectedCount + :rejected, " +
+            "d.revenue = d.revenue + :revenue WHERE d.day = :day")
+    int increment(@Param("day") LocalDate day, @Param("orders") long orders, @Param("rejected") long rejected,
+                  @Param("revenue") BigDecimal revenue);
+
+    @Transactional(readOnly = true)
+    List<DailySales> findByDayBetweenOrderByDay(LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM DailySales d WHERE d.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+}
@@ -0,0 +1,32 @@
+package com.dapakino.api.repository;
+
+import com.dapakino.api.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    // Ricostruzione dei rollup: tutte le righe degli ordini validi di una giornata, raggruppate per ordine.
+    // Non una SUM per prodotto: l'incasso di un ordine (totalAmount) si ripartisce sulle sue righe
+    // (vedi SalesRollupService.revenueShares), anche su quelle senza prodotto collegato
+    @Query("SELECT o.id AS orderId, o.totalAmount AS totalAmount, i.productId AS productId, i.productName AS productName, " +
+            "i.quantity AS quantity, i.unitPrice AS unitPrice FROM OrderItem i JOIN i.order o " +
+            "WHERE o.orderDate >= :start AND o.orderDate < :end " +
+            "AND (o.status IS NULL OR o.status <> 'RIFIUTATO') ORDER BY o.id, i.id")
+    List<SoldLine> findSoldLines(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    interface SoldLine {
+        Long getOrderId();
+        Double getTotalAmount();
+        Long getProductId();
+        String getProductName();
+        Integer getQuantity();
+        BigDecimal getUnitPrice();
+    }
+}
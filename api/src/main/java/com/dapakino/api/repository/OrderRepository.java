@@ -1,21 +1,142 @@
 package com.dapakino.api.repository;
 
+import com.dapakino.api.dto.OrderCursor;
 import com.dapakino.api.model.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Optional;
 import java.time.LocalDateTime;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderSearchRepository {
 
-    List<Order> findByUserIdOrderByOrderDateDesc(Long userId);
+    // Storico a pagine (keyset su orderDate, id): prima le chiavi, poi gli ordini completi.
+    // Le chiavi (data + id) servono a fondere la lista con quella dell'archivio.
+    // Letture readOnly: con il profilo replica vanno sulla replica (vedi ReplicaRouting)
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.OrderCursor(o.orderDate, o.id) FROM Order o " +
+            "WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderCursor> findHistoryKeys(@Param("userId") Long userId, Limit limit);
 
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.OrderCursor(o.orderDate, o.id) FROM Order o WHERE o.user.id = :userId " +
+            "AND (o.orderDate < :afterDate OR (o.orderDate = :afterDate AND o.id < :afterId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderCursor> findHistoryKeysAfter(@Param("userId") Long userId, @Param("afterDate") LocalDateTime afterDate,
+                                           @Param("afterId") Long afterId, Limit limit);
+
+    // Ordini e righe con una sola query (fetch join) invece di una SELECT per ordine
+    @Transactional(readOnly = true)
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.user LEFT JOIN FETCH o.items WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") List<Long> ids);
+
+    // Caricamento degli ordini attivi in memoria (ActiveOrderStore): il cliente (EAGER) in JOIN invece di
+    // una SELECT per ordine, le righe non servono
+    @EntityGraph(attributePaths = {"user"})
     List<Order> findByStatusInOrderByOrderDateAsc(List<String> statuses);
 
-    // NUOVO: Conta ordini per orario in un range di date (per filtrare solo quelli di oggi)
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.deliveryTime = :time AND o.orderDate BETWEEN :start AND :end")
-    int countOrdersByTime(@Param("time") String time, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-}
\ No newline at end of file
+    @EntityGraph(attributePaths = {"items"})
+    Optional<Order> findWithItemsById(Long id);
+
+    // Ingestione a journal: chiavi già scritte (rigioco dopo un crash) e stato di un invio
+    @Query("SELECT o.submissionKey FROM Order o WHERE o.submissionKey IN :keys")
+    List<String> findSubmissionKeysIn(@Param("keys") List<String> keys);
+
+    @EntityGraph(attributePaths = {"items"})
+    Optional<Order> findBySubmissionKey(String submissionKey);
+
+    // Unità di forno prenotate per fascia di TUTTA la giornata in un colpo solo (esclusi gli ordini rifiutati):
+    // da qui SlotCapacityService ricostruisce il carico del forno
+    @Query("SELECT o.deliveryTime AS deliveryTime, SUM(o.ovenUnits) AS units FROM Order o " +
+            "WHERE o.orderDate BETWEEN :start AND :end AND o.deliveryTime IS NOT NULL AND o.ovenUnits IS NOT NULL " +
+            "AND (o.status IS NULL OR o.status <> :excludedStatus) " +
+            "GROUP BY o.deliveryTime")
+    List<SlotUnits> sumOvenUnitsBySlot(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                       @Param("excludedStatus") String excludedStatus);
+
+    // Lo stesso per gli ordini salvati prima di ovenUnits: pezzi per ordine e prodotto (senza le righe di
+    // consegna). LEFT JOIN: anche un ordine senza righe pesa MIN_UNITS, come quando viene rilasciato
+    @Query("SELECT o.id AS orderId, o.deliveryTime AS deliveryTime, i.productId AS productId, SUM(i.quantity) AS quantity " +
+            "FROM Order o LEFT JOIN o.items i ON NOT (i.productId IS NULL AND i.unitPrice IS NOT NULL) " +
+            "WHERE o.orderDate BETWEEN :start AND :end AND o.deliveryTime IS NOT NULL AND o.ovenUnits IS NULL " +
+            "AND (o.status IS NULL OR o.status <> :excludedStatus) " +
+            "GROUP BY o.id, o.deliveryTime, i.productId")
+    List<LegacyLoad> findLegacyLoad(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                    @Param("excludedStatus") String excludedStatus);
+
+    // Per la migrazione a blocchi: solo id e testo, niente entità gestite
+    @Query("SELECT o.id AS id, o.orderDetails AS orderDetails FROM Order o " +
+            "WHERE o.id > :afterId AND o.orderDetails IS NOT NULL AND o.items IS EMPTY ORDER BY o.id")
+    List<OrderDetailsRow> findDetailsWithoutItems(@Param("afterId") Long afterId, Limit limit);
+
+    // Avanzamento di gruppo con un solo UPDATE: passano solo gli ordini ancora nello stato di partenza.
+    // La versione sale come farebbe Hibernate, così i PATCH con una versione vecchia vengono respinti
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1 WHERE o.id IN :ids AND o.status = :from")
+    int transitionStatus(@Param("ids") List<Long> ids, @Param("from") String from, @Param("to") String to);
+
+    @Query("SELECT o.id AS id, o.status AS status FROM Order o WHERE o.id IN :ids")
+    List<StatusRow> findStatusByIdIn(@Param("ids") List<Long> ids);
+
+    // Giornata degli ordini che stanno per cambiare: SlotCapacityService la carica prima del commit
+    @Query("SELECT o.orderDate FROM Order o WHERE o.id = :id")
+    Optional<LocalDateTime> findOrderDateById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT o.orderDate FROM Order o WHERE o.id IN :ids AND o.orderDate IS NOT NULL")
+    List<LocalDateTime> findOrderDatesByIdIn(@Param("ids") List<Long> ids);
+
+    // Ricostruzione dei rollup (SalesRollupService.rebuild): totali di UNA giornata
+    @Query("SELECT COUNT(o) AS total, SUM(CASE WHEN o.status = 'RIFIUTATO' THEN 1 ELSE 0 END) AS rejected, " +
+            "SUM(CASE WHEN o.status = 'RIFIUTATO' THEN 0.0 ELSE o.totalAmount END) AS revenue " +
+            "FROM Order o WHERE o.orderDate >= :start AND o.orderDate < :end")
+    DayTotals sumDay(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT o.deliveryTime AS deliveryTime, COUNT(o) AS total, SUM(o.totalAmount) AS revenue FROM Order o " +
+            "WHERE o.orderDate >= :start AND o.orderDate < :end AND o.deliveryTime IS NOT NULL " +
+            "AND (o.status IS NULL OR o.status <> 'RIFIUTATO') GROUP BY o.deliveryTime")
+    List<SlotTotals> sumSlots(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT MIN(o.orderDate) FROM Order o")
+    Optional<LocalDateTime> findFirstOrderDate();
+
+    interface SlotUnits {
+        String getDeliveryTime();
+        Number getUnits();
+    }
+
+    interface LegacyLoad {
+        Long getOrderId();
+        String getDeliveryTime();
+        Long getProductId();
+        Number getQuantity();
+    }
+
+    interface OrderDetailsRow {
+        Long getId();
+        String getOrderDetails();
+    }
+
+    interface DayTotals {
+        Number getTotal();
+        Number getRejected();
+        Number getRevenue();
+    }
+
+    interface SlotTotals {
+        String getDeliveryTime();
+        Number getTotal();
+        Number getRevenue();
+    }
+
+    interface StatusRow {
+        Long getId();
+        String getStatus();
+    }
+}
@@ -0,0 +1,13 @@
+package com.dapakino.api.repository;
+
+import com.dapakino.api.dto.OrderCursor;
+import com.dapakino.api.dto.OrderSearch;
+
+import java.util.List;
+
+public interface OrderSearchRepository {
+
+    // Chiavi (data, id) degli ordini che rispettano i filtri, dal più recente, a partire dal cursore.
+    // archived = true cerca nell'archivio (orders_archive) invece che negli ordini attivi
+    List<OrderCursor> searchKeys(OrderSearch search, boolean archived, int limit);
+}
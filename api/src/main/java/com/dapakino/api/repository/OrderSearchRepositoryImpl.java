@@ -0,0 +1,45 @@
+package com.dapakino.api.repository;
+
+import com.dapakino.api.dto.OrderCursor;
+import com.dapakino.api.dto.OrderSearch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Query costruita solo con i filtri presenti, così Postgres usa l'indice giusto
+// (status+data, data+fascia) invece di un piano generico con "OR :param IS NULL".
+public class OrderSearchRepositoryImpl implements OrderSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrderCursor> searchKeys(OrderSearch search, boolean archived, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.dapakino.api.dto.OrderCursor(o.orderDate, o.id) FROM ")
+                .append(archived ? "ArchivedOrder" : "Order")
+                .append(" o WHERE 1 = 1");
+        if (search.status() != null) jpql.append(" AND o.status = :status");
+        if (search.from() != null) jpql.append(" AND o.orderDate >= :from");
+        if (search.to() != null) jpql.append(" AND o.orderDate < :to");
+        if (search.deliveryTime() != null) jpql.append(" AND o.deliveryTime = :deliveryTime");
+        if (search.after() != null) {
+            jpql.append(" AND (o.orderDate < :afterDate OR (o.orderDate = :afterDate AND o.id < :afterId))");
+        }
+        jpql.append(" ORDER BY o.orderDate DESC, o.id DESC");
+
+        TypedQuery<OrderCursor> query = entityManager.createQuery(jpql.toString(), OrderCursor.class);
+        if (search.status() != null) query.setParameter("status", search.status());
+        if (search.from() != null) query.setParameter("from", search.from());
+        if (search.to() != null) query.setParameter("to", search.to());
+        if (search.deliveryTime() != null) query.setParameter("deliveryTime", search.deliveryTime());
+        if (search.after() != null) {
+            query.setParameter("afterDate", search.after().orderDate());
+            query.setParameter("afterId", search.after().id());
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -1,12 +1,22 @@
 package com.dapakino.api.repository;
 
+import com.dapakino.api.dto.MenuItemView;
 import com.dapakino.api.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     // Spring crea automaticamente la query grazie al nome del metodo!
     List<Product> findByAvailableTrue();
+
+    // Menu pubblico in una query: prodotti disponibili + nome categoria, direttamente in record immutabili
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.MenuItemView(p.id, p.name, p.description, p.price, p.imageUrl, " +
+            "p.isMonthlySpecial, c.id, c.name) " +
+            "FROM Product p JOIN p.category c WHERE p.available = true ORDER BY c.id, p.name")
+    List<MenuItemView> findMenu();
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.dapakino.api.repository;
+
+import com.dapakino.api.dto.CategoryReport;
+import com.dapakino.api.dto.ProductReport;
+import com.dapakino.api.model.ProductSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ProductSalesRepository extends JpaRepository<ProductSales, ProductSales.Key> {
+
+    @Modifying
+    @Query("UPDATE ProductSales p SET p.quantity = p.quantity + :quantity, p.revenue = p.revenue + :revenue " +
+            "WHERE p.day = :day AND p.productId = :productId")
+    int increment(@Param("day") LocalDate day, @Param("productId") Long productId,
+                  @Param("quantity") long quantity, @Param("revenue") BigDecimal revenue);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.ProductReport(p.productId, MAX(p.productName), MAX(p.categoryName), " +
+            "SUM(p.quantity), SUM(p.revenue)) FROM ProductSales p WHERE p.day BETWEEN :from AND :to " +
+            "GROUP BY p.productId ORDER BY SUM(p.revenue) DESC")
+    List<ProductReport> reportByProduct(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.CategoryReport(p.categoryName, SUM(p.quantity), SUM(p.revenue)) " +
+            "FROM ProductSales p WHERE p.day BETWEEN :from AND :to GROUP BY p.categoryName ORDER BY SUM(p.revenue) DESC")
+    List<CategoryReport> reportByCategory(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM ProductSales p WHERE p.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+}
@@ -0,0 +1,32 @@
+package com.dapakino.api.repository;
+
+import com.dapakino.api.dto.SlotReport;
+import com.dapakino.api.model.SlotSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SlotSalesRepository extends JpaRepository<SlotSales, SlotSales.Key> {
+
+    @Modifying
+    @Query("UPDATE SlotSales s SET s.orderCount = s.orderCount + :orders, s.revenue = s.revenue + :revenue " +
+            "WHERE s.day = :day AND s.deliveryTime = :deliveryTime")
+    int increment(@Param("day") LocalDate day, @Param("deliveryTime") String deliveryTime,
+                  @Param("orders") long orders, @Param("revenue") BigDecimal revenue);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.dapakino.api.dto.SlotReport(s.deliveryTime, SUM(s.orderCount), SUM(s.revenue)) " +
+            "FROM SlotSales s WHERE s.day BETWEEN :from AND :to GROUP BY s.deliveryTime ORDER BY s.deliveryTime")
+    List<SlotReport> report(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM SlotSales s WHERE s.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+}
@@ -0,0 +1,44 @@
+package com.dapakino.api.security;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Token revocati (logout) fino alla loro scadenza naturale: dopo non serve ricordarli.
+// Dimensione limitata: se si riempie, prima si puliscono gli scaduti, poi si scarta quello più vicino a scadere.
+@Component
+public class RevokedTokenStore {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final ConcurrentHashMap<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    public void revoke(SessionPrincipal principal) {
+        if (revoked.size() >= MAX_ENTRIES) {
+            purgeExpired();
+            if (revoked.size() >= MAX_ENTRIES) {
+                revoked.entrySet().stream()
+                        .min(Map.Entry.comparingByValue())
+                        .ifPresent(eldest -> revoked.remove(eldest.getKey()));
+            }
+        }
+        revoked.put(principal.tokenId(), principal.expiresAt());
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    @Scheduled(fixedDelay = 300_000)
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+}
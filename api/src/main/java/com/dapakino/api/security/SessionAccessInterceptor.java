@@ -0,0 +1,102 @@
+package com.dapakino.api.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.List;
+import java.util.Map;
+
+// Con dapakino.session.enforce=true (il default) applica le regole di accesso sul principal messo da SessionTokenFilter:
+// tutto in memoria, zero query. Sta nella catena degli interceptor (dopo quello CORS di Spring MVC)
+// e non in un filtro: un 401/403 porta gli header CORS come qualsiasi altra risposta.
+@Component
+public class SessionAccessInterceptor implements HandlerInterceptor {
+
+    // Rotte riservate allo staff (cucina/admin), per metodo HTTP
+    private static final List<String[]> STAFF_ROUTES = List.of(
+            new String[]{"GET", "/api/orders/kitchen/**"},
+            new String[]{"GET", "/api/orders/search"},
+            new String[]{"PATCH", "/api/orders/*/status"},
+            new String[]{"POST", "/api/orders/status/batch"},
+            new String[]{"GET", "/api/reports/**"},
+            new String[]{"POST", "/api/reports/**"},
+            new String[]{"POST", "/api/products/**"},
+            new String[]{"PUT", "/api/products/**"},
+            new String[]{"PATCH", "/api/products/**"},
+            new String[]{"DELETE", "/api/products/**"}
+    );
+
+    // Rotte per chi ha una sessione qualsiasi: l'ordine viene intestato al principal, non all'utente del body
+    private static final List<String[]> SESSION_ROUTES = List.of(
+            new String[]{"POST", "/api/orders"}
+    );
+
+    // Rotte sui dati di un utente: solo il diretto interessato (o un admin)
+    private static final List<String> USER_ROUTES = List.of(
+            "/api/orders/user/{userId}",
+            "/api/auth/update-profile/{userId}",
+            "/api/auth/{userId}"
+    );
+
+    private final boolean enforce;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public SessionAccessInterceptor(@Value("${dapakino.session.enforce:true}") boolean enforce) {
+        this.enforce = enforce;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!enforce || CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        int status = authorize(request, (SessionPrincipal) request.getAttribute(SessionTokenFilter.PRINCIPAL_ATTRIBUTE));
+        if (status != HttpServletResponse.SC_OK) {
+            response.sendError(status);
+            return false;
+        }
+        return true;
+    }
+
+    private int authorize(HttpServletRequest request, SessionPrincipal principal) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+
+        for (String[] route : STAFF_ROUTES) {
+            if (route[0].equals(method) && pathMatcher.match(route[1], path)) {
+                if (principal == null) return HttpServletResponse.SC_UNAUTHORIZED;
+                return principal.isStaff() ? HttpServletResponse.SC_OK : HttpServletResponse.SC_FORBIDDEN;
+            }
+        }
+        for (String[] route : SESSION_ROUTES) {
+            if (route[0].equals(method) && pathMatcher.match(route[1], path)) {
+                return principal == null ? HttpServletResponse.SC_UNAUTHORIZED : HttpServletResponse.SC_OK;
+            }
+        }
+        for (String pattern : USER_ROUTES) {
+            if (pathMatcher.match(pattern, path)) {
+                Map<String, String> variables = pathMatcher.extractUriTemplateVariables(pattern, path);
+                Long userId = parseId(variables.get("userId"));
+                if (userId == null) {
+                    continue; // Es. /api/auth/login: non è una rotta utente
+                }
+                if (principal == null) return HttpServletResponse.SC_UNAUTHORIZED;
+                return principal.canAccessUser(userId) ? HttpServletResponse.SC_OK : HttpServletResponse.SC_FORBIDDEN;
+            }
+        }
+        return HttpServletResponse.SC_OK;
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
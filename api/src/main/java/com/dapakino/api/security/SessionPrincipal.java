@@ -0,0 +1,15 @@
+package com.dapakino.api.security;
+
+import java.time.Instant;
+
+// Chi sta facendo la richiesta, letto dal token firmato (nessuna query sugli utenti)
+public record SessionPrincipal(Long userId, String role, Instant expiresAt, String tokenId) {
+
+    public boolean isStaff() {
+        return "ADMIN".equals(role) || "KITCHEN".equals(role);
+    }
+
+    public boolean canAccessUser(Long otherUserId) {
+        return userId.equals(otherUserId) || "ADMIN".equals(role);
+    }
+}
@@ -0,0 +1,41 @@
+package com.dapakino.api.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Legge il token "Authorization: Bearer ..." e mette il SessionPrincipal tra gli attributi della richiesta.
+// Qui non si rifiuta niente: le regole di accesso le applica SessionAccessInterceptor, dentro Spring MVC,
+// così anche i 401/403 escono con gli header CORS e il browser vede lo stato vero.
+@Component
+public class SessionTokenFilter extends OncePerRequestFilter {
+
+    public static final String PRINCIPAL_ATTRIBUTE = "dapakino.session";
+
+    private final SessionTokenService sessionTokens;
+
+    public SessionTokenFilter(SessionTokenService sessionTokens) {
+        this.sessionTokens = sessionTokens;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        sessionTokens.parse(token(request)).ifPresent(p -> request.setAttribute(PRINCIPAL_ATTRIBUTE, p));
+        chain.doFilter(request, response);
+    }
+
+    // EventSource (stream cucina) non può mandare header: lì accettiamo anche ?access_token=
+    static String token(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7).trim();
+        }
+        return request.getParameter("access_token");
+    }
+}
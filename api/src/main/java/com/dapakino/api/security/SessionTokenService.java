@@ -0,0 +1,113 @@
+package com.dapakino.api.security;
+
+import com.dapakino.api.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+// Token di sessione compatti e firmati HMAC-SHA256: "<payload>.<firma>" in base64url,
+// payload = userId:ruolo:scadenza:id-token. Si valida solo con la chiave, senza DB.
+@Service
+public class SessionTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final RevokedTokenStore revokedTokens;
+    private final SecureRandom random = new SecureRandom();
+    // Mac non è thread-safe: uno per thread, riutilizzato
+    private final ThreadLocal<Mac> macs;
+
+    public SessionTokenService(@Value("${dapakino.session.secret:}") String secret,
+                               @Value("${dapakino.session.ttl:12h}") Duration ttl,
+                               RevokedTokenStore revokedTokens) {
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            // Senza segreto configurato i token valgono solo fino al prossimo riavvio
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+            log.warn("dapakino.session.secret non impostato: uso una chiave temporanea");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttl = ttl;
+        this.revokedTokens = revokedTokens;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String issue(User user) {
+        byte[] tokenId = new byte[9];
+        random.nextBytes(tokenId);
+        long expiresAt = Instant.now().plus(ttl).getEpochSecond();
+        String payload = user.getId() + ":" + user.getRole() + ":" + expiresAt + ":" + ENCODER.encodeToString(tokenId);
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    // Principal se firma valida, non scaduto e non revocato
+    public Optional<SessionPrincipal> parse(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return Optional.empty();
+        }
+        try {
+            String encodedPayload = token.substring(0, dot);
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            // Confronto a tempo costante: niente indizi sulla firma corretta
+            if (!MessageDigest.isEqual(sign(encodedPayload), signature)) {
+                return Optional.empty();
+            }
+
+            String[] parts = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 4) {
+                return Optional.empty();
+            }
+            SessionPrincipal principal = new SessionPrincipal(
+                    Long.parseLong(parts[0]), parts[1], Instant.ofEpochSecond(Long.parseLong(parts[2])), parts[3]);
+            if (principal.expiresAt().isBefore(Instant.now()) || revokedTokens.isRevoked(principal.tokenId())) {
+                return Optional.empty();
+            }
+            return Optional.of(principal);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty(); // base64 o numeri non validi
+        }
+    }
+
+    public void revoke(SessionPrincipal principal) {
+        revokedTokens.revoke(principal);
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC non disponibile", e);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.config.ReplicaRouting;
+import com.dapakino.api.dto.KitchenOrderView;
+import com.dapakino.api.model.Order;
+import com.dapakino.api.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Gli ordini ancora in mano alla cucina (stati attivi) tenuti in memoria: GET /kitchen, le viste per fascia,
+// gli ordini in scadenza e lo snapshot SSE rispondono da qui senza toccare il DB.
+// Chi scrive (OrderService, OrderIngestService) passa gli ordini a commit avvenuto; un ordine che esce
+// dagli stati attivi viene tolto. Ogni scrittura costruisce una fotografia nuova e la pubblica con un volatile
+// (copy-on-write): i lettori non prendono lock e non vedono mai una fotografia a metà.
+// Gli ordini attivi di una serata sono decine, ricopiarli ad ogni cambio di stato costa poco.
+// Si carica con UNA query all'avvio (dal primario) e si riallinea ogni tanto col DB.
+@Service
+public class ActiveOrderStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveOrderStore.class);
+
+    // Ordini chiusi da poco con la loro versione: un aggiornamento vecchio arrivato in ritardo
+    // (due tablet sullo stesso ordine) non deve farli ricomparire
+    private static final int MAX_CLOSED = 1000;
+
+    private static final Comparator<KitchenOrderView> OLDEST_FIRST = Comparator
+            .comparing(KitchenOrderView::orderDate, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(KitchenOrderView::id);
+
+    // all = come GET /kitchen (dal più vecchio); bySlot = per data e ora di consegna, senza gli ordini senza orario
+    public record Snapshot(Map<Long, KitchenOrderView> byId, List<KitchenOrderView> all,
+                           Map<String, List<KitchenOrderView>> byStatus,
+                           NavigableMap<LocalDateTime, List<KitchenOrderView>> bySlot) {}
+
+    private static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), Map.of(),
+            Collections.unmodifiableNavigableMap(new TreeMap<>()));
+
+    private final OrderRepository orderRepository;
+
+    private volatile Snapshot current;
+
+    // Protetto da "this"
+    private final Map<Long, Long> closed = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_CLOSED;
+        }
+    };
+
+    public ActiveOrderStore(OrderRepository orderRepository, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        meterRegistry.gauge("kitchen.orders.active", this, store -> store.current == null ? 0 : store.current.all().size());
+    }
+
+    public Snapshot get() {
+        Snapshot snapshot = current;
+        return snapshot != null ? snapshot : load();
+    }
+
+    // Ordini attivi dal più vecchio, come li vuole la cucina
+    public List<KitchenOrderView> all() {
+        return get().all();
+    }
+
+    public List<KitchenOrderView> byStatus(String status) {
+        return get().byStatus().getOrDefault(status, List.of());
+    }
+
+    // Fasce di un giorno in ordine di orario: "19:30" -> ordini
+    public Map<String, List<KitchenOrderView>> slotsOf(LocalDate day) {
+        Map<String, List<KitchenOrderView>> slots = new LinkedHashMap<>();
+        get().bySlot().subMap(day.atStartOfDay(), true, day.plusDays(1).atStartOfDay(), false)
+                .forEach((due, orders) -> slots.put(SlotSchedule.format(due.toLocalTime()), orders));
+        return slots;
+    }
+
+    // Ordini da consegnare entro "limit", compresi quelli già in ritardo
+    public List<KitchenOrderView> dueBy(LocalDateTime limit) {
+        List<KitchenOrderView> due = new ArrayList<>();
+        get().bySlot().headMap(limit, true).values().forEach(due::addAll);
+        return due;
+    }
+
+    // Da chiamare a commit avvenuto, PRIMA di pubblicare l'evento SSE: chi si collega in quel momento
+    // riceve lo snapshot aggiornato oppure l'evento (o entrambi, che è innocuo)
+    public void apply(Order order) {
+        apply(List.of(order));
+    }
+
+    public synchronized void apply(Collection<Order> orders) {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            return; // Non ancora caricato: la query di caricamento vedrà già questi ordini (sono committati)
+        }
+        Map<Long, KitchenOrderView> byId = new HashMap<>(snapshot.byId());
+        boolean changed = false;
+        for (Order order : orders) {
+            if (order.getId() == null) {
+                continue;
+            }
+            long version = order.getVersion() == null ? 0 : order.getVersion();
+            KitchenOrderView known = byId.get(order.getId());
+            Long closedAt = closed.get(order.getId());
+            if ((known != null && known.version() != null && known.version() > version)
+                    || (closedAt != null && closedAt >= version)) {
+                continue; // Aggiornamento superato da uno già applicato
+            }
+            if (OrderService.KITCHEN_STATUSES.contains(order.getStatus())) {
+                byId.put(order.getId(), KitchenOrderView.from(order));
+            } else {
+                byId.remove(order.getId());
+                closed.put(order.getId(), version);
+            }
+            changed = true;
+        }
+        if (changed) {
+            current = index(byId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        load();
+    }
+
+    // Rete di sicurezza per modifiche fatte fuori da questa istanza (SQL a mano, un'altra istanza)
+    @Scheduled(fixedDelayString = "${dapakino.kitchen.resync:PT5M}", initialDelayString = "${dapakino.kitchen.resync:PT5M}")
+    public synchronized void resync() {
+        if (current != null) {
+            current = read();
+        }
+    }
+
+    // Sotto lock anche la query: una scrittura che arriva intanto aspetta e poi si applica sulla fotografia nuova
+    private synchronized Snapshot load() {
+        if (current == null) {
+            current = read();
+            log.info("Ordini attivi in memoria: {}", current.all().size());
+        }
+        return current;
+    }
+
+    private Snapshot read() {
+        // Sempre dal primario: da una replica in ritardo mancherebbero gli ultimi ordini
+        List<Order> orders = ReplicaRouting.onPrimary(() ->
+                orderRepository.findByStatusInOrderByOrderDateAsc(OrderService.KITCHEN_STATUSES));
+        Map<Long, KitchenOrderView> byId = new HashMap<>();
+        for (Order order : orders) {
+            byId.put(order.getId(), KitchenOrderView.from(order));
+        }
+        return index(byId);
+    }
+
+    private static Snapshot index(Map<Long, KitchenOrderView> byId) {
+        if (byId.isEmpty()) {
+            return EMPTY;
+        }
+        List<KitchenOrderView> all = new ArrayList<>(byId.values());
+        all.sort(OLDEST_FIRST);
+        Map<String, List<KitchenOrderView>> byStatus = new HashMap<>();
+        TreeMap<LocalDateTime, List<KitchenOrderView>> bySlot = new TreeMap<>();
+        for (KitchenOrderView order : all) {
+            byStatus.computeIfAbsent(order.status(), s -> new ArrayList<>()).add(order);
+            LocalDateTime due = dueAt(order);
+            if (due != null) {
+                bySlot.computeIfAbsent(due, d -> new ArrayList<>()).add(order);
+            }
+        }
+        byStatus.replaceAll((status, orders) -> List.copyOf(orders));
+        bySlot.replaceAll((due, orders) -> List.copyOf(orders));
+        return new Snapshot(Map.copyOf(byId), List.copyOf(all), Map.copyOf(byStatus),
+                Collections.unmodifiableNavigableMap(bySlot));
+    }
+
+    // Giorno dell'ordine + orario di consegna; null se l'orario manca o non si legge
+    private static LocalDateTime dueAt(KitchenOrderView order) {
+        if (order.orderDate() == null || order.deliveryTime() == null) {
+            return null;
+        }
+        try {
+            return order.orderDate().toLocalDate().atTime(LocalTime.parse(order.deliveryTime().trim()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.dapakino.api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Costi di consegna per comune (dapakino.delivery.fees): l'unica riga senza prodotto che un ordine può avere.
+// Il carrello manda solo "Consegna <comune>", il prezzo lo mette il server (elenco in GET /api/orders/delivery-fees)
+@Component
+public class DeliveryFees {
+
+    public static final String LINE_PREFIX = "Consegna ";
+
+    private final Map<String, BigDecimal> fees = new LinkedHashMap<>();
+
+    public DeliveryFees(@Value("${dapakino.delivery.fees:Vinovo:2.00}") String fees) {
+        // "Vinovo:2.00,La Loggia:3.00"
+        for (String entry : fees.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon > 0) {
+                this.fees.put(entry.substring(0, colon).trim(), new BigDecimal(entry.substring(colon + 1).trim()));
+            }
+        }
+    }
+
+    // Comuni serviti e costo, nell'ordine delle properties
+    public Map<String, BigDecimal> all() {
+        return Collections.unmodifiableMap(fees);
+    }
+
+    // Prezzo di una riga "Consegna <comune>"; vuoto se il comune non è tra quelli serviti
+    public Optional<BigDecimal> priceOf(String lineName) {
+        if (lineName == null || !lineName.startsWith(LINE_PREFIX)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(fees.get(lineName.substring(LINE_PREFIX.length()).trim()));
+    }
+}
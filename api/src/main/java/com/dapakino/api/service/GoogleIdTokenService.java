@@ -0,0 +1,132 @@
+package com.dapakino.api.service;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Verifica degli ID token di Google con UN'unica istanza per tutta l'app.
+// Le chiavi pubbliche restano in memoria e vengono rinnovate in background prima della scadenza
+// indicata da Google: il login non aspetta mai il download dei certificati.
+@Service
+public class GoogleIdTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleIdTokenService.class);
+
+    private static final List<String> ISSUERS = List.of("accounts.google.com", "https://accounts.google.com");
+    private static final long CLOCK_SKEW_SECONDS = 60;
+    // Rinnoviamo un po' prima della scadenza, così la cache non è mai vuota
+    private static final Duration REFRESH_MARGIN = Duration.ofMinutes(5);
+    // Un "kid" sconosciuto (rotazione chiavi) forza un download, ma non più spesso di così
+    private static final Duration FORCED_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    private record KeyCache(Map<String, PublicKey> keys, Instant expiresAt) {}
+
+    private final GoogleKeySource keySource;
+    private final List<String> audience;
+    private final JsonFactory jsonFactory = GsonFactory.getDefaultInstance();
+
+    private final Counter keyHits;
+    private final Counter keyMisses;
+    private final Counter refreshSuccess;
+    private final Counter refreshFailure;
+
+    private volatile KeyCache cache = new KeyCache(Map.of(), Instant.EPOCH);
+    private volatile Instant lastForcedRefresh = Instant.EPOCH;
+
+    public GoogleIdTokenService(GoogleKeySource keySource, MeterRegistry meterRegistry,
+                                @Value("${dapakino.google.client-id}") String clientId) {
+        this.keySource = keySource;
+        this.audience = List.of(clientId);
+        this.keyHits = meterRegistry.counter("auth.google.keys", "result", "hit");
+        this.keyMisses = meterRegistry.counter("auth.google.keys", "result", "miss");
+        this.refreshSuccess = meterRegistry.counter("auth.google.keys.refresh", "outcome", "success");
+        this.refreshFailure = meterRegistry.counter("auth.google.keys.refresh", "outcome", "failure");
+    }
+
+    // Payload del token se firma, emittente, destinatario e scadenza sono validi
+    public Optional<GoogleIdToken.Payload> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            GoogleIdToken idToken = GoogleIdToken.parse(jsonFactory, token);
+            if (!"RS256".equals(idToken.getHeader().getAlgorithm())) {
+                return Optional.empty();
+            }
+
+            PublicKey key = publicKey(idToken.getHeader().getKeyId());
+            if (key == null || !idToken.verifySignature(key)) {
+                return Optional.empty();
+            }
+            if (!idToken.verifyIssuer(ISSUERS)
+                    || !idToken.verifyAudience(audience)
+                    || !idToken.verifyTime(System.currentTimeMillis(), CLOCK_SKEW_SECONDS)) {
+                return Optional.empty();
+            }
+            return Optional.of(idToken.getPayload());
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+            return Optional.empty(); // Token malformato
+        }
+    }
+
+    // Controllo periodico: scarica le chiavi solo quando stanno per scadere (parte anche all'avvio)
+    @Scheduled(fixedDelay = 60_000)
+    public void refreshIfExpiring() {
+        if (Instant.now().isAfter(cache.expiresAt().minus(REFRESH_MARGIN))) {
+            refreshKeys();
+        }
+    }
+
+    public synchronized boolean refreshKeys() {
+        try {
+            GoogleKeySource.KeySet keySet = keySource.fetchKeys();
+            cache = new KeyCache(Map.copyOf(keySet.keys()), Instant.now().plus(keySet.maxAge()));
+            refreshSuccess.increment();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Teniamo le chiavi vecchie: meglio di nessuna chiave
+            refreshFailure.increment();
+            log.warn("Aggiornamento chiavi Google fallito: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private PublicKey publicKey(String keyId) {
+        if (keyId == null) {
+            return null;
+        }
+        PublicKey key = cache.keys().get(keyId);
+        if (key != null) {
+            keyHits.increment();
+            return key;
+        }
+        keyMisses.increment();
+
+        Instant now = Instant.now();
+        synchronized (this) {
+            key = cache.keys().get(keyId); // Magari un altro login ha già scaricato le chiavi nuove
+            if (key == null && now.isAfter(lastForcedRefresh.plus(FORCED_REFRESH_INTERVAL))) {
+                lastForcedRefresh = now;
+                refreshKeys();
+                key = cache.keys().get(keyId);
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,17 @@
+package com.dapakino.api.service;
+
+import java.io.IOException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Map;
+
+// Da dove arrivano le chiavi pubbliche di Google. In produzione l'endpoint JWKS di Google,
+// nei test un JWKS generato in locale (nessuna rete).
+@FunctionalInterface
+public interface GoogleKeySource {
+
+    // Chiavi per "kid" + per quanto tempo possono restare in cache (max-age)
+    record KeySet(Map<String, PublicKey> keys, Duration maxAge) {}
+
+    KeySet fetchKeys() throws IOException;
+}
@@ -0,0 +1,56 @@
+package com.dapakino.api.service;
+
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Scarica le chiavi dall'endpoint JWKS di Google e legge la durata dalla Cache-Control
+@Component
+public class HttpGoogleKeySource implements GoogleKeySource {
+
+    private static final URI CERTS_URI = URI.create("https://www.googleapis.com/oauth2/v3/certs");
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    // Un solo client per tutta l'applicazione: connessioni TLS riutilizzate
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final ObjectMapper objectMapper;
+
+    public HttpGoogleKeySource(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public KeySet fetchKeys() throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(CERTS_URI).timeout(TIMEOUT).GET().build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download chiavi Google interrotto", e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Chiavi Google non disponibili: HTTP " + response.statusCode());
+        }
+
+        Duration maxAge = response.headers().firstValue("Cache-Control")
+                .map(HttpGoogleKeySource::maxAge)
+                .orElse(DEFAULT_MAX_AGE);
+        return new KeySet(Jwks.parse(objectMapper, response.body()), maxAge);
+    }
+
+    private static Duration maxAge(String cacheControl) {
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        return matcher.find() ? Duration.ofSeconds(Long.parseLong(matcher.group(1))) : DEFAULT_MAX_AGE;
+    }
+}
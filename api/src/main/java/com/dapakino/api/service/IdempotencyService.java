@@ -0,0 +1,135 @@
+package com.dapakino.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Risposte già date per Idempotency-Key: un ritentativo dal telefono con la stessa chiave riceve
+// la risposta originale invece di creare un secondo ordine.
+// Cache in memoria limitata (numero di chiavi + scadenza); chi arriva mentre la prima richiesta è
+// ancora in corso aspetta il suo esito invece di eseguirla di nuovo (una sola esecuzione per chiave).
+// Se la chiave non è più in cache (riavvio, scadenza, altra istanza) decide il vincolo unico su orders.submission_key.
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private record Entry(CompletableFuture<ResponseEntity<?>> response, long expiresAt) {}
+
+    private final Map<String, Entry> entries;
+    private final long ttlNanos;
+    private final Duration maxWait;
+
+    private final Counter hits;
+    private final Counter waits;
+    private final Counter misses;
+
+    public IdempotencyService(MeterRegistry meterRegistry,
+                              @Value("${dapakino.idempotency.max-keys:10000}") int maxKeys,
+                              @Value("${dapakino.idempotency.ttl:1h}") Duration ttl,
+                              @Value("${dapakino.idempotency.max-wait:10s}") Duration maxWait) {
+        // Ordine di inserimento: con una scadenza uguale per tutti le più vecchie sono in testa
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxKeys;
+            }
+        };
+        this.ttlNanos = ttl.toNanos();
+        this.maxWait = maxWait;
+        this.hits = meterRegistry.counter("idempotency.requests", "result", "hit");
+        this.waits = meterRegistry.counter("idempotency.requests", "result", "in_flight");
+        this.misses = meterRegistry.counter("idempotency.requests", "result", "miss");
+        meterRegistry.gauge("idempotency.cache.size", entries, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
+    }
+
+    public static boolean isValidKey(String key) {
+        return key != null && !key.isBlank() && key.length() <= MAX_KEY_LENGTH;
+    }
+
+    // Si ricordano solo le risposte 2xx: un 409 (fascia piena) o un 503 si possono ritentare davvero
+    public ResponseEntity<?> execute(String key, Supplier<ResponseEntity<?>> action) {
+        CompletableFuture<ResponseEntity<?>> mine = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<?>> previous;
+        long now = System.nanoTime();
+        synchronized (entries) {
+            evictExpired(now);
+            Entry entry = entries.get(key);
+            previous = entry == null ? null : entry.response();
+            if (previous == null) {
+                entries.put(key, new Entry(mine, now + ttlNanos));
+            }
+        }
+        if (previous != null) {
+            return replay(previous);
+        }
+
+        misses.increment();
+        try {
+            ResponseEntity<?> response = action.get();
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                forget(key, mine);
+            }
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            forget(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private ResponseEntity<?> replay(CompletableFuture<ResponseEntity<?>> previous) {
+        (previous.isDone() ? hits : waits).increment();
+        try {
+            return previous.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Richiesta con la stessa chiave ancora in corso, riprova");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    private void forget(String key, CompletableFuture<ResponseEntity<?>> response) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.response() == response) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    // Chiamato con il lock su entries
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt() - now > 0) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.dapakino.api.service;
+
+// Il journal degli ordini non può accettare altro (coda piena, disco non scrivibile, servizio in chiusura)
+public class IngestUnavailableException extends RuntimeException {
+
+    public IngestUnavailableException(String message) {
+        super(message);
+    }
+
+    public IngestUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
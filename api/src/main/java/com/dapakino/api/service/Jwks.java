@@ -0,0 +1,50 @@
+package com.dapakino.api.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lettura di un JSON Web Key Set (solo chiavi RSA, quelle usate da Google per gli ID token)
+public final class Jwks {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Key(String kid, String kty, String n, String e) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record KeyList(List<Key> keys) {}
+
+    private Jwks() {
+    }
+
+    public static Map<String, PublicKey> parse(ObjectMapper objectMapper, String json) {
+        KeyList keyList = objectMapper.readValue(json, KeyList.class);
+        Map<String, PublicKey> keys = new HashMap<>();
+        if (keyList.keys() == null) {
+            return keys;
+        }
+        try {
+            KeyFactory rsa = KeyFactory.getInstance("RSA");
+            for (Key key : keyList.keys()) {
+                if (!"RSA".equals(key.kty()) || key.kid() == null) {
+                    continue;
+                }
+                RSAPublicKeySpec spec = new RSAPublicKeySpec(
+                        new BigInteger(1, Base64.getUrlDecoder().decode(key.n())),
+                        new BigInteger(1, Base64.getUrlDecoder().decode(key.e())));
+                keys.put(key.kid(), rsa.generatePublic(spec));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("JWKS non valido", e);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,219 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.dto.KitchenOrderView;
+import com.dapakino.api.model.Order;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Stream SSE per i tablet della cucina: alla connessione arriva la lista completa ("snapshot"),
+// poi solo le variazioni. Gli ultimi eventi restano in un buffer circolare così un tablet
+// che si riconnette con Last-Event-ID recupera quello che ha perso senza ricaricare tutto.
+// Chi pubblica (checkout, cambi di stato) non scrive mai su un socket: sotto lock assegna l'id e mette
+// l'evento nella coda di ogni tablet, poi un thread del pool lo spedisce. Un tablet lento o mezzo morto
+// rallenta solo la propria coda; se resta troppo indietro viene chiuso e si riconnette con Last-Event-ID.
+@Service
+public class KitchenEventService {
+
+    public static final String SNAPSHOT = "snapshot";
+    public static final String ORDER_CREATED = "order-created";
+    public static final String ORDER_UPDATED = "order-updated";
+    public static final String ORDER_CLOSED = "order-closed";
+
+    private static final int BUFFER_SIZE = 500;
+    private static final int MAX_QUEUED = BUFFER_SIZE;
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final long RECONNECT_MS = 3000L;
+
+    // type null = commento di heartbeat
+    private record KitchenEvent(long id, String type, Object data) {}
+
+    private static final KitchenEvent PING = new KitchenEvent(0, null, null);
+
+    private final ActiveOrderStore activeOrders;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "kitchen-sse");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Protetti da "this"
+    private final ArrayDeque<KitchenEvent> buffer = new ArrayDeque<>();
+    // Gli id partono dall'orario di avvio: dopo un riavvio un vecchio Last-Event-ID
+    // risulta sempre "troppo vecchio" e il tablet riceve uno snapshot pulito.
+    private long lastId = System.currentTimeMillis() * 1000;
+
+    public KitchenEventService(ActiveOrderStore activeOrders) {
+        this.activeOrders = activeOrders;
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::closed);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscriber.closed());
+
+        if (lastEventId != null && resume(subscriber, lastEventId)) {
+            subscriber.schedule();
+            return emitter;
+        }
+
+        long seenBefore;
+        synchronized (this) {
+            seenBefore = lastId;
+        }
+        // Dagli ordini attivi in memoria (che chi scrive aggiorna prima di pubblicare), fuori dal lock
+        List<KitchenOrderView> snapshot = activeOrders.all();
+
+        synchronized (this) {
+            subscriber.offer(new KitchenEvent(seenBefore, SNAPSHOT, snapshot));
+            // Eventi arrivati nel frattempo: le variazioni sono idempotenti, rispedirle è innocuo
+            for (KitchenEvent event : buffer) {
+                if (event.id() > seenBefore) {
+                    subscriber.offer(event);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    public void orderCreated(Order order) {
+        publish(ORDER_CREATED, KitchenOrderView.from(order));
+    }
+
+    public void orderUpdated(Order order) {
+        if (OrderService.KITCHEN_STATUSES.contains(order.getStatus())) {
+            publish(ORDER_UPDATED, KitchenOrderView.from(order));
+        } else {
+            publish(ORDER_CLOSED, Map.of("id", order.getId()));
+        }
+    }
+
+    // Tiene vive le connessioni dietro proxy/load balancer che chiudono i canali muti.
+    // Anche il ping passa dalle code: il thread dei @Scheduled non resta appeso a un tablet
+    @Scheduled(fixedRate = 15000)
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(PING);
+            subscriber.schedule();
+        }
+    }
+
+    private synchronized boolean resume(Subscriber subscriber, long lastEventId) {
+        long oldestAvailable = buffer.isEmpty() ? lastId + 1 : buffer.peekFirst().id();
+        if (lastEventId > lastId || lastEventId < oldestAvailable - 1) {
+            return false; // Buco non recuperabile: serve uno snapshot
+        }
+        for (KitchenEvent event : buffer) {
+            if (event.id() > lastEventId) {
+                subscriber.offer(event);
+            }
+        }
+        subscribers.add(subscriber);
+        return true;
+    }
+
+    // Sotto lock solo id, buffer e code: stesso ordine degli eventi per tutti i tablet, nessuna I/O
+    private void publish(String type, Object data) {
+        synchronized (this) {
+            KitchenEvent event = new KitchenEvent(++lastId, type, data);
+            buffer.addLast(event);
+            if (buffer.size() > BUFFER_SIZE) {
+                buffer.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    // Un tablet collegato: la sua coda la svuota al più un thread alla volta, quindi gli eventi arrivano in ordine
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<KitchenEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(KitchenEvent event) {
+            if (closed) {
+                return;
+            }
+            if (queued.incrementAndGet() > MAX_QUEUED) {
+                // Troppo indietro: lo chiudiamo (fuori da questo thread, complete può attendere una send)
+                // e al rientro con Last-Event-ID riparte dal buffer o da uno snapshot
+                closed();
+                senders.execute(emitter::complete);
+                return;
+            }
+            queue.add(event);
+        }
+
+        void schedule() {
+            if (!closed && !queue.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void closed() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+
+        private void drain() {
+            try {
+                KitchenEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    send(event);
+                }
+            } finally {
+                draining.set(false);
+            }
+            schedule(); // Eventi arrivati mentre uscivamo
+        }
+
+        private void send(KitchenEvent event) {
+            try {
+                if (event.type() == null) {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                    return;
+                }
+                emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.id()))
+                        .name(event.type())
+                        .reconnectTime(RECONNECT_MS)
+                        .data(event.data(), MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                // Tablet disconnesso: il container chiuderà la richiesta, noi smettiamo di scrivergli
+                closed();
+            }
+        }
+    }
+}
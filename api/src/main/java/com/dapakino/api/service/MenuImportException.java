@@ -0,0 +1,18 @@
+package com.dapakino.api.service;
+
+import java.util.List;
+
+// File di import non valido: nessuna riga viene scritta, gli errori tornano al client
+public class MenuImportException extends RuntimeException {
+
+    private final List<String> errors;
+
+    public MenuImportException(List<String> errors) {
+        super("Import menu non valido (" + errors.size() + " errori)");
+        this.errors = List.copyOf(errors);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
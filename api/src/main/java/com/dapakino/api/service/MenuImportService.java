@@ -0,0 +1,323 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.dto.MenuImportResult;
+import com.dapakino.api.dto.MenuImportRow;
+import com.dapakino.api.model.Category;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.repository.CategoryRepository;
+import com.dapakino.api.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Import massivo del menu (categorie + prodotti) da JSON o CSV.
+// Il file viene letto in streaming e validato per intero; poi tutto va scritto in UNA transazione:
+// due SELECT (categorie e prodotti), INSERT e UPDATE in batch JDBC grazie agli id da sequenza.
+// L'upsert è per nome del prodotto (senza maiuscole/spazi); i prodotti assenti dal file non si toccano.
+@Service
+public class MenuImportService {
+
+    static final int MAX_ROWS = 2000;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final MenuSnapshotService menuSnapshot;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public MenuImportService(CategoryRepository categoryRepository, ProductRepository productRepository,
+                             MenuSnapshotService menuSnapshot, ObjectMapper objectMapper,
+                             TransactionTemplate transactionTemplate) {
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.menuSnapshot = menuSnapshot;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Array JSON di righe: [{"category":"Le Pizze","name":"Margherita","price":7.00,...}, ...]
+    public MenuImportResult importJson(InputStream in) {
+        List<MenuImportRow> rows = new ArrayList<>();
+        try {
+            MappingIterator<MenuImportRow> iterator = objectMapper.readerFor(MenuImportRow.class).readValues(in);
+            while (iterator.hasNextValue()) {
+                addRow(rows, iterator.nextValue());
+            }
+        } catch (JacksonException e) {
+            throw new MenuImportException(List.of("JSON non valido: " + e.getOriginalMessage()));
+        }
+        return importRows(rows);
+    }
+
+    // CSV con intestazione (category,name,description,price,imageUrl,available,isMonthlySpecial),
+    // separatore "," oppure ";" (export di Excel in italiano), campi tra virgolette con "" come escape.
+    // Un campo tra virgolette può andare a capo (descrizioni scritte su più righe in Excel)
+    public MenuImportResult importCsv(InputStream in) throws IOException {
+        List<MenuImportRow> rows = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        String header = reader.readLine();
+        if (header == null) {
+            throw new MenuImportException(List.of("File CSV vuoto"));
+        }
+        header = header.replace("\uFEFF", ""); // BOM di Excel
+        char separator = header.indexOf(';') >= 0 && header.indexOf(',') < 0 ? ';' : ',';
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(header, separator);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("category") || !columns.containsKey("price")) {
+            throw new MenuImportException(List.of("Intestazione CSV senza le colonne obbligatorie category, name, price"));
+        }
+
+        String line;
+        int lineNumber = 1;
+        while ((line = readCsvRecord(reader)) != null) {
+            int recordLine = lineNumber + 1; // Negli errori la riga dove il record comincia
+            lineNumber = recordLine + (int) line.chars().filter(c -> c == '\n').count();
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = splitCsvLine(line, separator);
+            try {
+                String price = field(fields, columns, "price");
+                addRow(rows, new MenuImportRow(
+                        field(fields, columns, "category"),
+                        field(fields, columns, "name"),
+                        field(fields, columns, "description"),
+                        price == null ? null : new BigDecimal(price.replace(',', '.')),
+                        field(fields, columns, "imageurl"),
+                        bool(field(fields, columns, "available")),
+                        bool(field(fields, columns, "ismonthlyspecial"))
+                ));
+            } catch (NumberFormatException e) {
+                errors.add("Riga " + recordLine + ": prezzo non numerico");
+                if (errors.size() >= MAX_REPORTED_ERRORS) {
+                    break;
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new MenuImportException(errors);
+        }
+        return importRows(rows);
+    }
+
+    private MenuImportResult importRows(List<MenuImportRow> rows) {
+        validate(rows);
+        MenuImportResult result = transactionTemplate.execute(status -> upsert(rows));
+        menuSnapshot.invalidate();
+        return result;
+    }
+
+    private MenuImportResult upsert(List<MenuImportRow> rows) {
+        // Prima le categorie: restano nel contesto di persistenza e la findAll dei prodotti
+        // (categoria EAGER) non deve rileggerle una per una
+        Map<String, Category> categories = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            categories.put(OrderItemService.normalize(category.getName()), category);
+        }
+        Map<String, Product> products = OrderItemService.indexByName(productRepository.findAll());
+
+        List<Category> newCategories = new ArrayList<>();
+        List<Product> newProducts = new ArrayList<>();
+        int updated = 0;
+        int unchanged = 0;
+
+        for (MenuImportRow row : rows) {
+            Category category = categories.computeIfAbsent(OrderItemService.normalize(row.category()), key -> {
+                Category created = Category.builder().name(row.category().trim()).build();
+                newCategories.add(created);
+                return created;
+            });
+
+            Product product = products.get(OrderItemService.normalize(row.name()));
+            if (product == null) {
+                newProducts.add(Product.builder()
+                        .name(row.name().trim())
+                        .description(row.description())
+                        .price(row.price())
+                        .imageUrl(row.imageUrl())
+                        .category(category)
+                        .available(row.available() == null || row.available())
+                        .isMonthlySpecial(row.monthlySpecial() != null && row.monthlySpecial())
+                        .build());
+            } else if (apply(product, row, category)) {
+                updated++; // Niente save: ci pensa il dirty checking al commit, in batch
+            } else {
+                unchanged++;
+            }
+        }
+
+        categoryRepository.saveAll(newCategories);
+        productRepository.saveAll(newProducts);
+        return new MenuImportResult(newCategories.size(), newProducts.size(), updated, unchanged);
+    }
+
+    // Aggiorna solo i campi diversi, così i prodotti identici non generano UPDATE
+    private static boolean apply(Product product, MenuImportRow row, Category category) {
+        boolean changed = false;
+        if (!Objects.equals(product.getDescription(), row.description())) {
+            product.setDescription(row.description());
+            changed = true;
+        }
+        if (product.getPrice() == null || product.getPrice().compareTo(row.price()) != 0) {
+            product.setPrice(row.price());
+            changed = true;
+        }
+        if (row.imageUrl() != null && !row.imageUrl().equals(product.getImageUrl())) {
+            product.setImageUrl(row.imageUrl());
+            changed = true;
+        }
+        if (product.getCategory() != category) {
+            product.setCategory(category);
+            changed = true;
+        }
+        if (row.available() != null && row.available() != product.isAvailable()) {
+            product.setAvailable(row.available());
+            changed = true;
+        }
+        if (row.monthlySpecial() != null && row.monthlySpecial() != product.isMonthlySpecial()) {
+            product.setMonthlySpecial(row.monthlySpecial());
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static void validate(List<MenuImportRow> rows) {
+        List<String> errors = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        if (rows.isEmpty()) {
+            errors.add("Nessun prodotto nel file");
+        }
+        for (int i = 0; i < rows.size() && errors.size() < MAX_REPORTED_ERRORS; i++) {
+            MenuImportRow row = rows.get(i);
+            String prefix = "Prodotto " + (i + 1) + ": ";
+            if (row.name() == null || row.name().isBlank()) {
+                errors.add(prefix + "nome mancante");
+                continue;
+            }
+            if (row.name().length() > 255) {
+                errors.add(prefix + "nome troppo lungo");
+            }
+            if (!seen.add(OrderItemService.normalize(row.name()))) {
+                errors.add(prefix + "\"" + row.name() + "\" compare più volte");
+            }
+            if (row.category() == null || row.category().isBlank()) {
+                errors.add(prefix + "categoria mancante");
+            }
+            if (row.price() == null || row.price().signum() < 0 || row.price().scale() > 2) {
+                errors.add(prefix + "prezzo non valido");
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new MenuImportException(errors);
+        }
+    }
+
+    private static void addRow(List<MenuImportRow> rows, MenuImportRow row) {
+        if (rows.size() >= MAX_ROWS) {
+            throw new MenuImportException(List.of("Troppe righe (massimo " + MAX_ROWS + ")"));
+        }
+        rows.add(row);
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Boolean bool(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "si", "sì", "yes", "y" -> true;
+            default -> false;
+        };
+    }
+
+    // Un record CSV: le righe fisiche si uniscono finché una virgoletta resta aperta. null a fine file
+    static String readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        boolean quoted = quoteOpen(line, false);
+        if (!quoted) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        while (quoted) {
+            String next = reader.readLine();
+            if (next == null) {
+                throw new MenuImportException(List.of("Virgolette non chiuse: il file finisce dentro un campo"));
+            }
+            record.append('\n').append(next);
+            quoted = quoteOpen(next, quoted);
+        }
+        return record.toString();
+    }
+
+    // Ogni " cambia stato; l'escape "" lo cambia due volte e lascia tutto com'era
+    private static boolean quoteOpen(String text, boolean open) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    static List<String> splitCsvLine(String line, char separator) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
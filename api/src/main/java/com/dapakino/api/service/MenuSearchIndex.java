@@ -0,0 +1,238 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Product;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+// Indice invertito (termine -> prodotti) su nome e descrizione dei prodotti, per la ricerca per ingredienti
+// ("con gorgonzola", "senza maiale") e l'autocompletamento. Immutabile: si ricostruisce insieme alla
+// fotografia del menu (MenuSnapshotService) e si interroga senza lock e senza DB.
+// I prodotti sono numerati 0..n-1 e le liste dei termini sono BitSet: AND/ANDNOT su poche parole macchina.
+// Indice e interrogazioni passano dalla stessa normalize(): minuscole, senza accenti e ridotte alla radice
+// (singolare e plurale coincidono), così "senza funghi" esclude anche "fungo".
+public final class MenuSearchIndex {
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "alla", "alle", "allo", "ai", "agli", "con", "da", "dal", "dalla", "de", "dei", "del", "della",
+            "delle", "di", "e", "ed", "il", "in", "la", "le", "lo", "gli", "i", "o", "per", "su", "sul", "sulla", "un", "una"
+    );
+
+    // Famiglie di ingredienti: "senza maiale" deve escludere anche salame, speck, 'nduja...
+    // Solo nomi di ingredienti veri: parole generiche come "frutti" escluderebbero anche i frutti di bosco
+    private static final Map<String, List<String>> GROUPS = normalizeGroups(Map.of(
+            "maiale", List.of("salame", "salamino", "salsiccia", "prosciutto", "cotto", "crudo", "speck", "pancetta",
+                    "guanciale", "nduja", "porchetta", "mortadella", "lardo", "wurstel"),
+            "pesce", List.of("tonno", "acciuga", "alice", "salmone", "gambero", "gamberetto", "cozza", "vongola",
+                    "calamaro", "polpo", "seppia", "scampo", "baccala")
+    ));
+
+    private final List<Product> products;
+    private final BitSet available;
+    private final String[] terms;            // Ordinati: un prefisso è un intervallo contiguo
+    private final BitSet[] postings;         // postings[i] = prodotti che contengono terms[i]
+    private final String[] displayForms;     // Prima forma incontrata (con accenti) per i suggerimenti
+
+    private MenuSearchIndex(List<Product> products, BitSet available, String[] terms, BitSet[] postings, String[] displayForms) {
+        this.products = products;
+        this.available = available;
+        this.terms = terms;
+        this.postings = postings;
+        this.displayForms = displayForms;
+    }
+
+    public static MenuSearchIndex build(List<Product> products) {
+        List<Product> ordered = List.copyOf(products);
+        BitSet available = new BitSet(ordered.size());
+        TreeMap<String, BitSet> postings = new TreeMap<>();
+        Map<String, String> display = new HashMap<>();
+        for (int doc = 0; doc < ordered.size(); doc++) {
+            Product product = ordered.get(doc);
+            if (product.isAvailable()) {
+                available.set(doc);
+            }
+            for (String text : new String[]{product.getName(), product.getDescription()}) {
+                if (text == null) {
+                    continue;
+                }
+                for (String word : SEPARATORS.split(text.toLowerCase(Locale.ITALIAN))) {
+                    String term = normalize(word);
+                    if (term.length() < 2 || STOPWORDS.contains(term)) {
+                        continue;
+                    }
+                    postings.computeIfAbsent(term, t -> new BitSet()).set(doc);
+                    display.putIfAbsent(term, word);
+                }
+            }
+        }
+        String[] terms = postings.keySet().toArray(new String[0]);
+        BitSet[] lists = postings.values().toArray(new BitSet[0]);
+        String[] forms = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            forms[i] = display.get(terms[i]);
+        }
+        return new MenuSearchIndex(ordered, available, terms, lists, forms);
+    }
+
+    // q: parole del nome/descrizione, tutte presenti (anche solo come inizio di parola, mentre si scrive);
+    // with: ingredienti obbligatori; without: ingredienti da escludere (famiglie comprese)
+    public List<Product> search(String q, List<String> with, List<String> without, boolean includeUnavailable) {
+        BitSet result = new BitSet(products.size());
+        result.set(0, products.size());
+        if (!includeUnavailable) {
+            result.and(available);
+        }
+        if (q != null) {
+            for (String term : tokenize(q)) {
+                result.and(matching(term, true));
+            }
+        }
+        for (String ingredient : terms(with)) {
+            result.and(matching(ingredient, true));
+        }
+        for (String ingredient : terms(without)) {
+            result.andNot(matching(ingredient, false));
+        }
+        List<Product> found = new ArrayList<>(result.cardinality());
+        for (int doc = result.nextSetBit(0); doc >= 0; doc = result.nextSetBit(doc + 1)) {
+            found.add(products.get(doc));
+        }
+        return found;
+    }
+
+    // Parole dell'indice che iniziano con il prefisso, le più diffuse nel menu per prime
+    public List<String> suggest(String prefix, int limit) {
+        String folded = prefix == null ? "" : normalize(prefix.trim().toLowerCase(Locale.ITALIAN));
+        if (folded.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int from = lowerBound(folded);
+        int to = upperBound(folded, from);
+        Integer[] matches = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            matches[i - from] = i;
+        }
+        Arrays.sort(matches, Comparator.comparingInt((Integer i) -> -postings[i].cardinality()).thenComparing(i -> terms[i]));
+        List<String> suggestions = new ArrayList<>(Math.min(limit, matches.length));
+        for (int i = 0; i < matches.length && suggestions.size() < limit; i++) {
+            suggestions.add(displayForms[matches[i]]);
+        }
+        return suggestions;
+    }
+
+    // Unione dei prodotti che contengono il termine (o una parola che inizia così) e la sua famiglia
+    private BitSet matching(String term, boolean prefix) {
+        BitSet docs = new BitSet(products.size());
+        collect(term, prefix, docs);
+        List<String> group = GROUPS.get(term);
+        if (group != null) {
+            for (String member : group) {
+                collect(member, false, docs);
+            }
+        }
+        return docs;
+    }
+
+    private void collect(String term, boolean prefix, BitSet into) {
+        int from = lowerBound(term);
+        int to = prefix ? upperBound(term, from) : (from < terms.length && terms[from].equals(term) ? from + 1 : from);
+        for (int i = from; i < to; i++) {
+            into.or(postings[i]);
+        }
+    }
+
+    // Primo termine >= key
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Primo termine dopo "from" che non inizia con il prefisso
+    private int upperBound(String prefix, int from) {
+        int end = from;
+        while (end < terms.length && terms[end].startsWith(prefix)) {
+            end++;
+        }
+        return end;
+    }
+
+    private static List<String> terms(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String value : values) {
+            terms.addAll(tokenize(value));
+        }
+        return terms;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String word : SEPARATORS.split(text.toLowerCase(Locale.ITALIAN))) {
+            String term = normalize(word);
+            if (!term.isEmpty() && !STOPWORDS.contains(term)) {
+                tokens.add(term);
+            }
+        }
+        return tokens;
+    }
+
+    // Forma unica di una parola (già in minuscolo) per indice e interrogazioni
+    static String normalize(String word) {
+        String folded = fold(word);
+        return STOPWORDS.contains(folded) ? folded : stem(folded);
+    }
+
+    // Radice "povera" per l'italiano: toglie la vocale finale che distingue singolare e plurale.
+    // funghi/fungo -> fung, acciughe/acciuga -> acciug, salsicce/salsiccia -> salsicc, formaggi/formaggio -> formagg.
+    // Le parole corte restano intere (tè, blu, ...): troppo poco per tagliare senza confondere
+    static String stem(String word) {
+        if (word.length() <= 3) {
+            return word;
+        }
+        String stem = word;
+        if ((stem.endsWith("io") || stem.endsWith("ia")) && stem.length() > 4) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if ("aeio".indexOf(stem.charAt(stem.length() - 1)) >= 0) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        if (stem.endsWith("ch") || stem.endsWith("gh")) {
+            stem = stem.substring(0, stem.length() - 1); // Plurali in -chi/-ghi, -che/-ghe
+        }
+        return stem;
+    }
+
+    private static Map<String, List<String>> normalizeGroups(Map<String, List<String>> groups) {
+        Map<String, List<String>> normalized = new HashMap<>();
+        groups.forEach((family, members) -> normalized.put(normalize(family), members.stream().map(MenuSearchIndex::normalize).toList()));
+        return Map.copyOf(normalized);
+    }
+
+    // "Peperoncino piccànte" -> "peperoncino piccante": senza accenti la ricerca perdona la tastiera del telefono
+    static String fold(String word) {
+        return ACCENTS.matcher(Normalizer.normalize(word, Normalizer.Form.NFD)).replaceAll("");
+    }
+}
@@ -0,0 +1,105 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.config.ReplicaRouting;
+import com.dapakino.api.dto.MenuCategoryView;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.repository.CategoryRepository;
+import com.dapakino.api.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Fotografia del menu già serializzata in JSON: le GET di prodotti e categorie
+// rispondono da qui senza toccare il DB. Viene invalidata ad ogni scrittura sui prodotti
+// e ricostruita alla prima lettura successiva.
+@Service
+public class MenuSnapshotService {
+
+    // Un payload pronto da spedire + il suo ETag forte (hash del contenuto)
+    public record Entry(byte[] json, String etag) {}
+
+    // Oltre ai payload teniamo i prodotti indicizzati: servono a chi crea ordini senza rileggere il DB.
+    // menu = risposta di GET /api/menu (sezioni per categoria, dalla proiezione a una JOIN)
+    // search = indice per ingredienti di /api/products/search: si ricostruisce qui, con il resto del menu
+    public record Snapshot(long version, Entry availableProducts, Entry allProducts, Entry categories, Entry menu,
+                           Map<Long, Product> productsById, MenuSearchIndex search) {}
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot current;
+
+    public MenuSnapshotService(ProductRepository productRepository,
+                               CategoryRepository categoryRepository,
+                               ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public Snapshot get() {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version() == version.get()) {
+            return snapshot;
+        }
+        return rebuild();
+    }
+
+    // Da chiamare dopo ogni scrittura sul menu (create/update/toggle/delete)
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    private synchronized Snapshot rebuild() {
+        long target = version.get();
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version() == target) {
+            return snapshot; // Un altro thread l'ha già ricostruita
+        }
+
+        // Se nel frattempo arriva un'altra invalidate la versione salvata resta vecchia
+        // e la prossima lettura ricostruisce di nuovo: nessun dato stantio servito a lungo.
+        // Sempre dal primario: la fotografia resta in memoria fino alla prossima modifica del menu
+        snapshot = ReplicaRouting.onPrimary(() -> load(target));
+        current = snapshot;
+        return snapshot;
+    }
+
+    private Snapshot load(long target) {
+        List<Product> allProducts = productRepository.findAll();
+        List<Product> availableProducts = allProducts.stream().filter(Product::isAvailable).toList();
+        return new Snapshot(
+                target,
+                entry(availableProducts),
+                entry(allProducts),
+                entry(categoryRepository.findAll()),
+                entry(MenuCategoryView.group(productRepository.findMenu())),
+                allProducts.stream().collect(Collectors.toUnmodifiableMap(Product::getId, Function.identity())),
+                MenuSearchIndex.build(allProducts)
+        );
+    }
+
+    private Entry entry(Object payload) {
+        byte[] json = objectMapper.writeValueAsBytes(payload);
+        return new Entry(json, "\"" + hash(json) + "\"");
+    }
+
+    private static String hash(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
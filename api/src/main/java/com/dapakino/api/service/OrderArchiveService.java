@@ -0,0 +1,104 @@
+package com.dapakino.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Archiviazione degli ordini chiusi: quelli COMPLETATI/CONSEGNATI/RIFIUTATI più vecchi di
+// dapakino.archive.after-days passano da orders/order_items a orders_archive/order_items_archive.
+// Così "orders" contiene solo il lavoro attivo e le ultime settimane e cucina/fasce restano veloci negli anni.
+// Lavora a blocchi (keyset sull'id), una transazione per blocco: INSERT ... SELECT + DELETE, tutto lato DB.
+@Service
+public class OrderArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    private static final List<String> CLOSED_STATUSES = List.of("COMPLETATO", "CONSEGNATO", OrderService.RIFIUTATO);
+
+    private static final String SELECT_CHUNK =
+            "SELECT id FROM orders WHERE id > :afterId AND order_date < :cutoff AND status IN (:statuses) " +
+            "ORDER BY id LIMIT :limit";
+    private static final String COPY_ORDERS =
+            "INSERT INTO orders_archive (id, user_id, order_date, delivery_time, total_amount, order_details, status, version, archived_at) " +
+            "SELECT id, user_id, order_date, delivery_time, total_amount, order_details, status, version, :now " +
+            "FROM orders WHERE id IN (:ids)";
+    private static final String COPY_ITEMS =
+            "INSERT INTO order_items_archive (id, order_id, product_id, product_name, quantity, unit_price, notes) " +
+            "SELECT id, order_id, product_id, product_name, quantity, unit_price, notes FROM order_items WHERE order_id IN (:ids)";
+    private static final String DELETE_ITEMS = "DELETE FROM order_items WHERE order_id IN (:ids)";
+    private static final String DELETE_ORDERS = "DELETE FROM orders WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int afterDays;
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public OrderArchiveService(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactionTemplate,
+                               @Value("${dapakino.archive.enabled:true}") boolean enabled,
+                               @Value("${dapakino.archive.after-days:30}") int afterDays,
+                               @Value("${dapakino.archive.chunk-size:500}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.afterDays = afterDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${dapakino.archive.cron:0 30 4 * * *}")
+    public void archiveClosedOrders() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+            long afterId = 0;
+            int archived = 0;
+            while (true) {
+                List<Long> ids = jdbc.queryForList(SELECT_CHUNK, new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("cutoff", cutoff)
+                        .addValue("statuses", CLOSED_STATUSES)
+                        .addValue("limit", chunkSize), Long.class);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                moveChunk(ids);
+                archived += ids.size();
+                afterId = ids.get(ids.size() - 1);
+            }
+            if (archived > 0) {
+                log.info("Archiviati {} ordini chiusi prima del {}", archived, cutoff.toLocalDate());
+            }
+        } catch (RuntimeException e) {
+            log.error("Archiviazione ordini interrotta (riprende al prossimo giro)", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Gli ordini chiusi non cambiano più (OrderStatus non ha uscite dagli stati finali): copiarli e
+    // cancellarli nella stessa transazione non può perdere aggiornamenti
+    private void moveChunk(List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("now", LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbc.update(COPY_ORDERS, params);
+            jdbc.update(COPY_ITEMS, params);
+            jdbc.update(DELETE_ITEMS, params);
+            jdbc.update(DELETE_ORDERS, params);
+        });
+    }
+}
@@ -0,0 +1,215 @@
+package com.dapakino.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+
+// Esportazione di tutti gli ordini di un periodo (attivi + archivio) con cliente e righe, in streaming.
+// Si legge a blocchi di chunk-size ordini in keyset su (order_date, id): ogni blocco è una SELECT in una
+// transazione breve in sola lettura (cursore JDBC con fetch size, sulla replica se c'è), poi si scrive
+// sulla risposta a transazione chiusa. In memoria c'è al massimo un blocco, qualunque sia il numero di ordini,
+// e la cucina non trova mai una transazione lunga aperta.
+@Service
+public class OrderExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Formato non supportato: " + value + " (ndjson o csv)");
+            }
+        }
+    }
+
+    public record ExportedItem(Long productId, String productName, int quantity, BigDecimal unitPrice, String notes) {}
+
+    public record ExportedOrder(Long id, LocalDateTime orderDate, String deliveryTime, String status, Double totalAmount,
+                                boolean archived, Long userId, String email, String firstName, String lastName,
+                                List<ExportedItem> items) {}
+
+    // Prima gli ordini del blocco (da entrambe le tabelle, già limitati), poi cliente e righe della tabella giusta
+    private static final String CHUNK =
+            "WITH page AS (" +
+            " (SELECT id, user_id, order_date, delivery_time, total_amount, status, FALSE AS archived FROM orders" +
+            "  WHERE order_date < :to AND (order_date > :afterDate OR (order_date = :afterDate AND id > :afterId))" +
+            "  ORDER BY order_date, id LIMIT :limit)" +
+            " UNION ALL" +
+            " (SELECT id, user_id, order_date, delivery_time, total_amount, status, TRUE AS archived FROM orders_archive" +
+            "  WHERE order_date < :to AND (order_date > :afterDate OR (order_date = :afterDate AND id > :afterId))" +
+            "  ORDER BY order_date, id LIMIT :limit)" +
+            " ORDER BY order_date, id LIMIT :limit) " +
+            "SELECT p.id, p.user_id, p.order_date, p.delivery_time, p.total_amount, p.status, p.archived," +
+            " u.email, u.first_name, u.last_name," +
+            " COALESCE(i.id, ai.id) AS item_id, COALESCE(i.product_id, ai.product_id) AS product_id," +
+            " COALESCE(i.product_name, ai.product_name) AS product_name, COALESCE(i.quantity, ai.quantity) AS quantity," +
+            " COALESCE(i.unit_price, ai.unit_price) AS unit_price, COALESCE(i.notes, ai.notes) AS notes " +
+            "FROM page p" +
+            " LEFT JOIN users u ON u.id = p.user_id" +
+            " LEFT JOIN order_items i ON NOT p.archived AND i.order_id = p.id" +
+            " LEFT JOIN order_items_archive ai ON p.archived AND ai.order_id = p.id " +
+            "ORDER BY p.order_date, p.id, item_id";
+
+    private static final String CSV_HEADER = "order_id,order_date,delivery_time,status,total_amount,archived," +
+            "user_id,email,first_name,last_name,product_id,product_name,quantity,unit_price,notes\n";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final Semaphore running;
+
+    public OrderExportService(DataSource dataSource, TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                              @Value("${dapakino.export.chunk-size:500}") int chunkSize,
+                              @Value("${dapakino.export.max-concurrent:1}") int maxConcurrent) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(chunkSize);
+        this.jdbc = new NamedParameterJdbcTemplate(template);
+        this.readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    // Ordini con order_date in [from, to). false se ci sono già troppe esportazioni in corso
+    // (prima di scrivere qualunque byte). Chiude "out" solo a esportazione completa: se un blocco fallisce
+    // a metà l'eccezione risale con lo stream aperto, il container interrompe la connessione (niente chunk
+    // finale, niente coda gzip) e il client vede un download fallito invece di un file corto ma "valido".
+    public boolean export(LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        if (!running.tryAcquire()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        long orders = 0;
+        boolean complete = false;
+        try {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+            }
+            LocalDateTime afterDate = from;
+            long afterId = -1; // Primo blocco: compresi gli ordini esattamente alle 00:00 di "from"
+            while (true) {
+                List<ExportedOrder> chunk = readChunk(to, afterDate, afterId);
+                for (ExportedOrder order : chunk) {
+                    if (format == Format.CSV) {
+                        writeCsv(writer, order);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(order));
+                        writer.write('\n');
+                    }
+                }
+                writer.flush(); // Un blocco alla volta verso il client
+                orders += chunk.size();
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                ExportedOrder last = chunk.get(chunk.size() - 1);
+                afterDate = last.orderDate();
+                afterId = last.id();
+            }
+            writer.close(); // Solo qui: chiude anche il gzip e il corpo della risposta
+            complete = true;
+        } finally {
+            running.release();
+            if (complete) {
+                log.info("Esportati {} ordini ({} - {}) in {} ms", orders, from, to, (System.nanoTime() - start) / 1_000_000);
+            } else {
+                log.error("Esportazione ({} - {}) interrotta dopo {} ordini: risposta troncata", from, to, orders);
+            }
+        }
+        return true;
+    }
+
+    private List<ExportedOrder> readChunk(LocalDateTime to, LocalDateTime afterDate, long afterId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("to", to)
+                .addValue("afterDate", afterDate)
+                .addValue("afterId", afterId)
+                .addValue("limit", chunkSize);
+        List<ExportedOrder> chunk = new ArrayList<>(chunkSize);
+        readOnly.executeWithoutResult(tx -> jdbc.query(CHUNK, params, (RowCallbackHandler) rs -> {
+            long id = rs.getLong("id");
+            ExportedOrder current = chunk.isEmpty() ? null : chunk.get(chunk.size() - 1);
+            if (current == null || current.id() != id) {
+                current = order(rs, id);
+                chunk.add(current);
+            }
+            if (rs.getObject("item_id") != null) {
+                current.items().add(new ExportedItem(rs.getObject("product_id", Long.class), rs.getString("product_name"),
+                        rs.getInt("quantity"), rs.getBigDecimal("unit_price"), rs.getString("notes")));
+            }
+        }));
+        return chunk;
+    }
+
+    private static ExportedOrder order(ResultSet rs, long id) throws SQLException {
+        return new ExportedOrder(id,
+                rs.getObject("order_date", LocalDateTime.class),
+                rs.getString("delivery_time"),
+                rs.getString("status"),
+                rs.getObject("total_amount", Double.class),
+                rs.getBoolean("archived"),
+                rs.getObject("user_id", Long.class),
+                rs.getString("email"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                new ArrayList<>());
+    }
+
+    // Una riga per prodotto (un ordine senza righe ne ha comunque una, con i campi prodotto vuoti)
+    private static void writeCsv(Writer writer, ExportedOrder order) throws IOException {
+        String head = String.join(",", String.valueOf(order.id()), csv(order.orderDate()), csv(order.deliveryTime()),
+                csv(order.status()), order.totalAmount() == null ? ""
+                        : BigDecimal.valueOf(order.totalAmount()).setScale(2, RoundingMode.HALF_UP).toPlainString(),
+                String.valueOf(order.archived()), csv(order.userId()), csv(order.email()), csv(order.firstName()),
+                csv(order.lastName()));
+        if (order.items().isEmpty()) {
+            writer.write(head + ",,,,,\n");
+            return;
+        }
+        for (ExportedItem item : order.items()) {
+            writer.write(head + "," + csv(item.productId()) + "," + csv(item.productName()) + "," + item.quantity() + ","
+                    + (item.unitPrice() == null ? "" : item.unitPrice().toPlainString()) + "," + csv(item.notes()) + "\n");
+        }
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
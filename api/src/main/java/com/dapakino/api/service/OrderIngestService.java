@@ -0,0 +1,528 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderItem;
+import com.dapakino.api.model.User;
+import com.dapakino.api.repository.OrderRepository;
+import com.dapakino.api.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+// Ingestione ordini in modalità outbox (dapakino.ingest.mode=outbox), per i picchi del sabato sera.
+// Il checkout valida l'ordine sul menu in memoria, prenota la fascia, lo scrive nel journal locale
+// (fsync di gruppo, vedi OrderJournal) e risponde 202 con la submissionKey: nessun giro verso il DB remoto.
+// Un solo thread scrittore porta poi gli ordini su PostgreSQL a blocchi, una transazione per blocco.
+// All'avvio il journal viene rigiocato PRIMA che il server accetti richieste; la submissionKey (unica) evita i doppioni.
+// Un ordine che ha avuto il 202 non si perde: si scarta solo se il DB lo rifiuta come dato non valido
+// (vincoli, validazione) e in quel caso finisce nel file degli scarti (vedi OrderJournal.deadLetter).
+// Qualunque altro errore (DB giù, connessione persa) fa riprovare il blocco, senza spostare il checkpoint.
+@Service
+public class OrderIngestService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIngestService.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String FAILED = "FAILED";
+
+    private static final long APPEND_TIMEOUT_SECONDS = 5;
+    private static final long MAX_BACKOFF_MS = 10_000;
+    private static final int MAX_REMEMBERED_FAILURES = 1000;
+
+    // Quello che finisce nel journal: l'ordine come validato al checkout
+    record JournalRecord(String submissionKey, Long userId, LocalDateTime orderDate, String deliveryTime,
+                         Double totalAmount, String orderDetails, List<OrderItem> items, Integer ovenUnits) {
+
+        static JournalRecord from(Order order) {
+            return new JournalRecord(order.getSubmissionKey(),
+                    order.getUser() == null ? null : order.getUser().getId(),
+                    order.getOrderDate(), order.getDeliveryTime(), order.getTotalAmount(),
+                    order.getOrderDetails(), order.getItems(), order.getOvenUnits());
+        }
+
+        Order toOrder(User user) {
+            Order order = new Order();
+            order.setSubmissionKey(submissionKey);
+            order.setUser(user);
+            order.setOrderDate(orderDate);
+            order.setDeliveryTime(deliveryTime);
+            order.setTotalAmount(totalAmount);
+            order.setOrderDetails(orderDetails);
+            order.setStatus(OrderService.INVIATO);
+            order.setItems(items == null ? new ArrayList<>() : new ArrayList<>(items));
+            order.setOvenUnits(ovenUnits);
+            return order;
+        }
+    }
+
+    // Esito di un invio ancora in memoria: in coda oppure scartato dallo scrittore
+    public record Submission(String status, String message) {}
+
+    private record Decoded(OrderJournal.Entry entry, JournalRecord record) {}
+
+    // Una riga del file degli scarti: il record originale resta leggibile per reinserirlo a mano
+    record DeadLetter(String submissionKey, long seq, LocalDateTime rejectedAt, String reason, String payload) {}
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final OrderItemService orderItems;
+    private final SlotCapacityService slotCapacity;
+    private final KitchenEventService kitchenEvents;
+    private final ActiveOrderStore activeOrders;
+    private final SalesRollupService salesRollups;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final DistributionSummary batchSizes;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int batchSize;
+    private final int maxPending;
+    private final long compactBytes;
+    private final Duration replayTimeout;
+
+    private final BlockingQueue<OrderJournal.Entry> toWrite = new LinkedBlockingQueue<>();
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> failures = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_REMEMBERED_FAILURES;
+        }
+    });
+
+    private volatile boolean running;
+    private OrderJournal journal;
+    private Thread writer;
+
+    public OrderIngestService(OrderRepository orderRepository, UserRepository userRepository,
+                              OrderItemService orderItems, SlotCapacityService slotCapacity,
+                              KitchenEventService kitchenEvents, ActiveOrderStore activeOrders,
+                              SalesRollupService salesRollups,
+                              TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${dapakino.ingest.mode:direct}") String mode,
+                              @Value("${dapakino.ingest.directory:data/journal}") String directory,
+                              @Value("${dapakino.ingest.batch-size:50}") int batchSize,
+                              @Value("${dapakino.ingest.max-pending:5000}") int maxPending,
+                              @Value("${dapakino.ingest.compact-bytes:4194304}") long compactBytes,
+                              @Value("${dapakino.ingest.replay-timeout:60s}") Duration replayTimeout) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.orderItems = orderItems;
+        this.slotCapacity = slotCapacity;
+        this.kitchenEvents = kitchenEvents;
+        this.activeOrders = activeOrders;
+        this.salesRollups = salesRollups;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = "outbox".equalsIgnoreCase(mode);
+        this.directory = Path.of(directory);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPending = maxPending;
+        this.compactBytes = compactBytes;
+        this.replayTimeout = replayTimeout;
+        this.batchSizes = DistributionSummary.builder("ingest.batch.size").register(meterRegistry);
+        meterRegistry.gauge("ingest.orders.pending", pendingKeys, Set::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Ritorna la submissionKey quando l'ordine è al sicuro su disco (non ancora sul DB)
+    public String submit(Order order) {
+        if (!running) {
+            throw new IngestUnavailableException("Servizio ordini in chiusura, riprova tra poco");
+        }
+        if (pendingKeys.size() >= maxPending) {
+            throw new IngestUnavailableException("Troppi ordini in attesa, riprova tra poco");
+        }
+        order.setStatus(OrderService.INVIATO);
+        order.setOrderDate(LocalDateTime.now()); // Come in placeOrder: la giornata del forno non la sceglie il client
+        if (order.getSubmissionKey() == null || order.getSubmissionKey().isBlank()) {
+            order.setSubmissionKey(UUID.randomUUID().toString());
+        }
+        String key = order.getSubmissionKey();
+        if (!pendingKeys.add(key)) {
+            return key; // Stessa chiave ancora in coda: niente secondo record né secondo posto
+        }
+
+        LocalDate day = order.getOrderDate().toLocalDate();
+        String slot;
+        int units;
+        byte[] payload;
+        try {
+            orderItems.resolveItems(order); // Prodotti e prezzi dal menu in memoria, nessuna query
+            slot = SlotSchedule.normalize(order.getDeliveryTime());
+            order.setDeliveryTime(slot);
+            units = slotCapacity.units(order.getItems());
+            order.setOvenUnits(units);
+            payload = objectMapper.writeValueAsBytes(JournalRecord.from(order));
+            if (slot != null) {
+                slotCapacity.reserve(day, slot, units);
+            }
+        } catch (RuntimeException e) {
+            pendingKeys.remove(key);
+            throw e;
+        }
+        try {
+            journal.append(payload).get(APPEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return key;
+        } catch (ExecutionException e) {
+            // Sicuramente non scritto (il journal taglia i gruppi falliti): restituiamo il posto
+            pendingKeys.remove(key);
+            if (slot != null) {
+                slotCapacity.release(day, slot, units);
+            }
+            throw new IngestUnavailableException("Impossibile registrare l'ordine, riprova", e.getCause());
+        } catch (TimeoutException e) {
+            // Esito incerto: il record potrebbe ancora arrivare su disco, il posto resta prenotato
+            throw new IngestUnavailableException("Registrazione dell'ordine lenta, riprova con la stessa chiave", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestUnavailableException("Registrazione dell'ordine interrotta", e);
+        }
+    }
+
+    // Stato di un invio: ancora in coda, scartato, oppure già ordine vero sul DB
+    public Optional<Submission> pendingSubmission(String submissionKey) {
+        if (pendingKeys.contains(submissionKey)) {
+            return Optional.of(new Submission(PENDING, null));
+        }
+        String failure = failures.get(submissionKey);
+        return failure == null ? Optional.empty() : Optional.of(new Submission(FAILED, failure));
+    }
+
+    // --- Ciclo di vita: parte prima del web server e si ferma dopo (fase 0) ---
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal = new OrderJournal(directory, compactBytes, toWrite::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal ordini non apribile in " + directory.toAbsolutePath(), e);
+        }
+        loadDeadLetters();
+        running = true;
+        List<OrderJournal.Entry> recovered = journal.recovered();
+        if (!recovered.isEmpty()) {
+            log.info("Journal ordini: {} ordini da rigiocare", recovered.size());
+            replay(recovered);
+        }
+        writer = new Thread(this::writeLoop, "order-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // Prima si chiude il journal (scrive gli ultimi gruppi in coda), poi lo scrittore svuota la sua coda
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Chiusura journal ordini: {}", e.getMessage());
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    // Si rigioca prima di aprire il server (il carico delle fasce deve già contare questi ordini), ma con
+    // attesa crescente e al massimo per replay-timeout: con il DB giù l'applicazione parte lo stesso e
+    // quello che resta passa allo scrittore, che continua a riprovare. Le chiavi risultano PENDING intanto
+    private void replay(List<OrderJournal.Entry> recovered) {
+        long deadline = System.nanoTime() + replayTimeout.toNanos();
+        BooleanSupplier inTime = () -> deadline - System.nanoTime() > 0;
+        int from = 0;
+        while (from < recovered.size() && inTime.getAsBoolean()) {
+            if (!writeWithRetry(recovered.subList(from, Math.min(from + batchSize, recovered.size())), inTime)) {
+                break;
+            }
+            from += batchSize;
+        }
+        if (from < recovered.size()) {
+            List<OrderJournal.Entry> left = recovered.subList(from, recovered.size());
+            log.warn("Journal ordini: DB non raggiungibile, {} ordini passano allo scrittore in background", left.size());
+            for (OrderJournal.Entry entry : left) {
+                decode(entry).ifPresent(this::holdReplayed);
+            }
+            toWrite.addAll(left);
+        }
+    }
+
+    // Un ordine rigiocato e non ancora sul DB va contato nelle fasce come al checkout, senza guardare il limite
+    // (il 202 è già partito). Così la scrittura o lo scarto rilasciano unità davvero prenotate da questo processo
+    private void holdReplayed(JournalRecord record) {
+        String key = record.submissionKey();
+        if (key == null || !pendingKeys.add(key)) {
+            return;
+        }
+        if (record.deliveryTime() != null && record.orderDate() != null) {
+            slotCapacity.add(record.orderDate().toLocalDate(), record.deliveryTime(), reservedUnits(record));
+        }
+    }
+
+    private Optional<JournalRecord> decode(OrderJournal.Entry entry) {
+        try {
+            return Optional.of(objectMapper.readValue(entry.payload(), JournalRecord.class));
+        } catch (JacksonException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void writeLoop() {
+        List<OrderJournal.Entry> batch = new ArrayList<>(batchSize);
+        while (running || !toWrite.isEmpty()) {
+            try {
+                OrderJournal.Entry first = toWrite.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                toWrite.drainTo(batch, batchSize - 1);
+                if (!writeWithRetry(batch, () -> true)) {
+                    return; // In chiusura con il DB irraggiungibile: ci pensa il rigioco al prossimo avvio
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Tutto quello che non è un ordine non valido (DB irraggiungibile, connessione persa, timeout, bug) fa
+    // riprovare lo stesso blocco con attesa crescente: il checkpoint avanza solo a blocco scritto.
+    // false = servizio in chiusura (o keepTrying scaduto) prima di riuscire
+    private boolean writeWithRetry(List<OrderJournal.Entry> batch, BooleanSupplier keepTrying) {
+        long backoff = 200;
+        while (true) {
+            try {
+                write(batch);
+                journal.checkpoint(batch.get(batch.size() - 1).seq());
+                return true;
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Scrittura di {} ordini rimandata: {}", batch.size(), e.getMessage());
+            } catch (IOException e) {
+                // Ordini già sul DB, checkpoint non aggiornato: al rigioco la submissionKey li fa saltare
+                log.error("Checkpoint del journal ordini non scritto", e);
+                return true;
+            } catch (RuntimeException e) {
+                log.error("Scrittura di {} ordini rimandata per un errore inatteso", batch.size(), e);
+            }
+            if (!running || !keepTrying.getAsBoolean()) {
+                return false;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void write(List<OrderJournal.Entry> batch) {
+        List<Decoded> decoded = new ArrayList<>(batch.size());
+        for (OrderJournal.Entry entry : batch) {
+            try {
+                decoded.add(new Decoded(entry, objectMapper.readValue(entry.payload(), JournalRecord.class)));
+            } catch (JacksonException e) {
+                log.error("Record {} del journal ordini illeggibile, scartato", entry.seq(), e);
+                deadLetter(null, entry, "Record illeggibile: " + e.getOriginalMessage());
+            }
+        }
+        if (decoded.isEmpty()) {
+            return;
+        }
+        List<Order> saved = new ArrayList<>();
+        Set<String> rejected = new HashSet<>();
+        try {
+            try {
+                saved.addAll(transactionTemplate.execute(tx -> persist(decoded.stream().map(Decoded::record).toList())));
+            } catch (RuntimeException e) {
+                if (!isInvalidOrder(e)) {
+                    throw e;
+                }
+                // Un ordine non valido non deve bloccare gli altri: si riprova uno per uno
+                for (Decoded one : decoded) {
+                    try {
+                        saved.addAll(transactionTemplate.execute(tx -> persist(List.of(one.record()))));
+                    } catch (RuntimeException single) {
+                        if (!isInvalidOrder(single)) {
+                            throw single; // Quelli già scritti vengono comunque pubblicati (finally)
+                        }
+                        reject(one, single);
+                        rejected.add(one.record().submissionKey());
+                    }
+                }
+            }
+        } finally {
+            published(saved);
+        }
+        batchSizes.record(decoded.size());
+
+        Set<String> written = new HashSet<>();
+        for (Order order : saved) {
+            written.add(order.getSubmissionKey());
+        }
+        for (Decoded one : decoded) {
+            JournalRecord record = one.record();
+            String key = record.submissionKey();
+            boolean accepted = pendingKeys.remove(key);
+            // Chiave già sul DB (ritentativo arrivato dopo la scrittura): il posto preso al checkout torna libero
+            if (accepted && !written.contains(key) && !rejected.contains(key)
+                    && record.deliveryTime() != null && record.orderDate() != null) {
+                slotCapacity.release(record.orderDate().toLocalDate(), record.deliveryTime(), reservedUnits(record));
+            }
+        }
+    }
+
+    // Contatori ed eventi solo a commit avvenuto, come in OrderService.placeOrder.
+    // Anche quando il blocco si interrompe a metà: al nuovo tentativo questi ordini risultano già scritti
+    private void published(List<Order> saved) {
+        activeOrders.apply(saved);
+        for (Order order : saved) {
+            pendingKeys.remove(order.getSubmissionKey());
+            kitchenEvents.orderCreated(order);
+            salesRollups.orderPlaced(order);
+        }
+    }
+
+    // Scartabili solo gli ordini che il DB rifiuta come dati (vincoli), quelli non validi sul menu
+    // (IllegalArgumentException di OrderItemService) e quelli respinti da Bean Validation,
+    // riconosciuta per nome perché il modulo non è tra le dipendenze
+    static boolean isInvalidOrder(RuntimeException error) {
+        if (error instanceof IllegalArgumentException) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause.getClass().getName().equals("jakarta.validation.ConstraintViolationException")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Order> persist(List<JournalRecord> records) {
+        List<String> keys = records.stream().map(JournalRecord::submissionKey).toList();
+        Set<String> existing = new HashSet<>(orderRepository.findSubmissionKeysIn(keys));
+        List<Order> orders = new ArrayList<>(records.size());
+        for (JournalRecord record : records) {
+            if (!existing.add(record.submissionKey())) {
+                continue; // Già scritto prima di un crash (o chiave ripetuta dal client)
+            }
+            User user = record.userId() == null ? null : userRepository.getReferenceById(record.userId());
+            Order order = record.toOrder(user);
+            orderItems.linkItems(order); // Righe già risolte al checkout: prezzi di quel momento
+            orders.add(order);
+        }
+        return orderRepository.saveAll(orders);
+    }
+
+    private void reject(Decoded one, RuntimeException cause) {
+        JournalRecord record = one.record();
+        log.error("Ordine {} scartato dallo scrittore: {}", record.submissionKey(), cause.getMessage());
+        deadLetter(record.submissionKey(), one.entry(), cause.getMessage());
+        // Solo gli ordini accettati da questo processo hanno un posto prenotato nel registro delle fasce
+        if (pendingKeys.remove(record.submissionKey()) && record.deliveryTime() != null && record.orderDate() != null) {
+            slotCapacity.release(record.orderDate().toLocalDate(), record.deliveryTime(), reservedUnits(record));
+        }
+    }
+
+    // Record di versioni precedenti non hanno ovenUnits: si ricalcola dalle righe
+    private int reservedUnits(JournalRecord record) {
+        return record.ovenUnits() != null ? record.ovenUnits() : slotCapacity.units(record.items());
+    }
+
+    // Su disco PRIMA del checkpoint: se il file degli scarti non si scrive il blocco si riprova
+    private void deadLetter(String submissionKey, OrderJournal.Entry entry, String reason) {
+        if (submissionKey != null && failures.containsKey(submissionKey)) {
+            return; // Già scartato in un tentativo precedente dello stesso blocco
+        }
+        DeadLetter letter = new DeadLetter(submissionKey, entry.seq(), LocalDateTime.now(), reason,
+                new String(entry.payload(), StandardCharsets.UTF_8));
+        try {
+            journal.deadLetter(objectMapper.writeValueAsBytes(letter));
+        } catch (IOException e) {
+            throw new UncheckedIOException("File degli ordini scartati non scrivibile", e);
+        }
+        if (submissionKey != null) {
+            failures.put(submissionKey, "Ordine non registrato: " + reason);
+        }
+    }
+
+    // Dopo un riavvio GET /submissions/{key} risponde ancora FAILED per gli ultimi scarti
+    private void loadDeadLetters() {
+        try {
+            for (byte[] line : journal.deadLetters()) {
+                try {
+                    DeadLetter letter = objectMapper.readValue(line, DeadLetter.class);
+                    if (letter.submissionKey() != null) {
+                        failures.put(letter.submissionKey(), "Ordine non registrato: " + letter.reason());
+                    }
+                } catch (JacksonException e) {
+                    log.warn("Riga illeggibile nel file degli ordini scartati: {}", e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("File degli ordini scartati non leggibile: {}", e.getMessage());
+        }
+    }
+}
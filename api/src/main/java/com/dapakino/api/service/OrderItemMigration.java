@@ -0,0 +1,82 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderItem;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.repository.OrderItemRepository;
+import com.dapakino.api.repository.OrderRepository;
+import com.dapakino.api.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Migrazione una tantum: trasforma il testo orderDetails degli ordini storici in righe OrderItem.
+// Si attiva con dapakino.migrations.order-items=true e lavora a blocchi (keyset sull'id),
+// una transazione per blocco: memoria costante e si può interrompere/riprendere in qualsiasi momento.
+@Component
+@ConditionalOnProperty(name = "dapakino.migrations.order-items", havingValue = "true")
+public class OrderItemMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderItemMigration.class);
+    private static final int CHUNK_SIZE = 200;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderItemMigration(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+                              ProductRepository productRepository, TransactionTemplate transactionTemplate) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<String, Product> productsByName = OrderItemService.indexByName(productRepository.findAll());
+
+        long afterId = 0;
+        int migrated = 0;
+        while (true) {
+            final long cursor = afterId;
+            List<OrderRepository.OrderDetailsRow> chunk = transactionTemplate.execute(tx -> {
+                List<OrderRepository.OrderDetailsRow> rows =
+                        orderRepository.findDetailsWithoutItems(cursor, Limit.of(CHUNK_SIZE));
+                List<OrderItem> items = new ArrayList<>();
+                for (OrderRepository.OrderDetailsRow row : rows) {
+                    // Solo un riferimento all'ordine: nessuna SELECT su orders/users
+                    Order order = orderRepository.getReferenceById(row.getId());
+                    for (OrderItem item : OrderItemService.parse(row.getOrderDetails(),
+                            name -> productsByName.get(OrderItemService.normalize(name)))) {
+                        item.setOrder(order);
+                        if (item.getProductId() != null) {
+                            item.setProduct(productRepository.getReferenceById(item.getProductId()));
+                        }
+                        items.add(item);
+                    }
+                }
+                orderItemRepository.saveAll(items);
+                return rows;
+            });
+
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+            migrated += chunk.size();
+            log.info("Migrazione righe d'ordine: {} ordini elaborati (ultimo id {})", migrated, afterId);
+        }
+        log.info("Migrazione righe d'ordine completata: {} ordini", migrated);
+    }
+}
@@ -0,0 +1,148 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderItem;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Costruisce le righe strutturate di un ordine dagli items inviati dal client: prodotti e prezzi dal menu,
+// la consegna dai costi del server (DeliveryFees). Le righe devono sommare al totale dell'ordine.
+// Il testo orderDetails ("2x Margherita (+bufala)") si interpreta solo per gli ordini vecchi (OrderItemMigration).
+@Service
+public class OrderItemService {
+
+    private static final Pattern LINE = Pattern.compile("^(\\d{1,3})x (.+?)(?: \\(\\+(.*)\\))?$");
+
+    private final ProductRepository productRepository;
+    private final MenuSnapshotService menuSnapshot;
+    private final DeliveryFees deliveryFees;
+
+    public OrderItemService(ProductRepository productRepository, MenuSnapshotService menuSnapshot, DeliveryFees deliveryFees) {
+        this.productRepository = productRepository;
+        this.menuSnapshot = menuSnapshot;
+        this.deliveryFees = deliveryFees;
+    }
+
+    // Collega righe già risolte all'ordine e ai prodotti (riferimenti, nessuna SELECT).
+    // Da chiamare dentro la transazione che salva l'ordine: al DB va solo il riferimento per la FK
+    public void linkItems(Order order) {
+        for (OrderItem item : order.getItems()) {
+            if (item.getProductId() != null) {
+                item.setProduct(productRepository.getReferenceById(item.getProductId()));
+            }
+            item.setOrder(order);
+        }
+    }
+
+    // Solo validazione e descrizione delle righe sul menu in memoria: nessun accesso al DB,
+    // si può chiamare anche fuori transazione (ingestione a journal)
+    public void resolveItems(Order order) {
+        MenuSnapshotService.Snapshot snapshot = menuSnapshot.get();
+        List<OrderItem> items = order.getItems();
+
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("L'ordine non ha righe");
+        }
+        boolean delivery = false;
+        for (OrderItem item : items) {
+            if (item.getProductId() == null) {
+                // Niente supplementi a prezzo libero: solo la consegna, al prezzo del server
+                BigDecimal fee = deliveryFees.priceOf(item.getProductName())
+                        .orElseThrow(() -> new IllegalArgumentException("Riga senza prodotto non ammessa: " + item.getProductName()));
+                if (delivery || item.getQuantity() != 1) {
+                    throw new IllegalArgumentException("Una sola consegna per ordine");
+                }
+                delivery = true;
+                item.setUnitPrice(fee);
+                continue;
+            }
+            Product product = snapshot.productsById().get(item.getProductId());
+            if (product == null) {
+                throw new IllegalArgumentException("Prodotto sconosciuto: " + item.getProductId());
+            }
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantità non valida per " + product.getName());
+            }
+            BigDecimal extras = item.getExtrasPrice() == null ? BigDecimal.ZERO : item.getExtrasPrice();
+            if (extras.signum() < 0) {
+                throw new IllegalArgumentException("Prezzo aggiunte non valido per " + product.getName());
+            }
+            describe(item, product);
+            item.setUnitPrice(item.getUnitPrice().add(extras));
+        }
+        checkTotal(order, items);
+        order.setItems(items);
+    }
+
+    // Tolleranza di un centesimo: il totale arriva come double dal carrello
+    private static void checkTotal(Order order, List<OrderItem> items) {
+        if (order.getTotalAmount() == null) {
+            return;
+        }
+        BigDecimal sum = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            sum = sum.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        BigDecimal total = BigDecimal.valueOf(order.getTotalAmount()).setScale(2, RoundingMode.HALF_UP);
+        if (sum.subtract(total).abs().compareTo(new BigDecimal("0.01")) > 0) {
+            throw new IllegalArgumentException("Il totale (" + total + ") non corrisponde alle righe (" + sum + ")");
+        }
+    }
+
+    // Solo per gli ordini salvati prima delle righe (OrderItemMigration).
+    // Righe tipo "2x Margherita (+bufala,nduja)"; le intestazioni (Cliente:, Tel:, ...) vengono ignorate.
+    // Un nome non più a menu produce comunque la riga, senza prodotto collegato.
+    public static List<OrderItem> parse(String orderDetails, Function<String, Product> productLookup) {
+        List<OrderItem> items = new ArrayList<>();
+        if (orderDetails == null) {
+            return items;
+        }
+        for (String line : orderDetails.split("\n")) {
+            Matcher matcher = LINE.matcher(line.trim());
+            if (!matcher.matches()) {
+                continue;
+            }
+            OrderItem item = new OrderItem();
+            item.setQuantity(Integer.parseInt(matcher.group(1)));
+            item.setProductName(matcher.group(2));
+            item.setNotes(matcher.group(3));
+
+            Product product = productLookup.apply(matcher.group(2));
+            if (product != null) {
+                describe(item, product);
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    public static Map<String, Product> indexByName(List<Product> products) {
+        Map<String, Product> byName = new HashMap<>();
+        for (Product product : products) {
+            byName.putIfAbsent(normalize(product.getName()), product);
+        }
+        return byName;
+    }
+
+    public static String normalize(String productName) {
+        return productName.trim().toLowerCase(Locale.ITALIAN);
+    }
+
+    private static void describe(OrderItem item, Product product) {
+        item.setProductId(product.getId());
+        item.setProductName(product.getName());
+        item.setUnitPrice(product.getPrice());
+    }
+}
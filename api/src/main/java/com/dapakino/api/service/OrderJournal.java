@@ -0,0 +1,255 @@
+package com.dapakino.api.service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Log locale append-only degli ordini accettati in modalità outbox.
+// Record: [lunghezza int][crc32 int][seq long][payload]; il CRC copre seq + payload, così un record
+// scritto a metà (crash durante la write) si riconosce alla riapertura e viene tagliato via.
+// Le append arrivano da molti thread ma le scrive un thread solo: prende tutto quello che è in coda,
+// una write e UN fsync per l'intero gruppo (group commit), poi sblocca tutti i chiamanti insieme.
+// Accanto c'è il file degli scarti (orders.rejected): una riga per ordine rifiutato dal DB, mai compattato.
+class OrderJournal implements Closeable {
+
+    record Entry(long seq, byte[] payload) {}
+
+    private record Append(byte[] payload, CompletableFuture<Long> done) {}
+
+    private static final int HEADER_BYTES = 16;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int MAX_GROUP = 256;
+
+    private final FileChannel log;
+    private final FileChannel checkpoint;
+    private final Path deadLetters;
+    private final long compactBytes;
+    private final Consumer<Entry> onDurable;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final List<Entry> recovered;
+    private final Thread thread;
+
+    private volatile boolean closed;
+    private volatile long committedSeq;
+    private long lastSeq; // Dopo l'apertura lo tocca solo il thread del journal
+
+    // onDurable riceve i record in ordine di seq, dal thread del journal, subito dopo l'fsync
+    OrderJournal(Path directory, long compactBytes, Consumer<Entry> onDurable) throws IOException {
+        Files.createDirectories(directory);
+        this.log = FileChannel.open(directory.resolve("orders.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = FileChannel.open(directory.resolve("orders.checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.deadLetters = directory.resolve("orders.rejected");
+        this.compactBytes = compactBytes;
+        this.onDurable = onDurable;
+        this.committedSeq = readCheckpoint();
+        this.recovered = recover();
+        this.thread = new Thread(this::run, "order-journal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Record scritti ma non ancora confermati sul DB quando il journal è stato aperto: vanno rigiocati
+    List<Entry> recovered() {
+        return recovered;
+    }
+
+    // Il future si completa con il seq del record quando è su disco (dopo l'fsync del suo gruppo)
+    CompletableFuture<Long> append(byte[] payload) {
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Ordine troppo grande");
+        }
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("Journal ordini chiuso"));
+        }
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        queue.add(new Append(payload, done));
+        return done;
+    }
+
+    // Chiamato dopo il commit sul DB: fino a seq compreso non serve più rigiocare nulla
+    synchronized void checkpoint(long seq) throws IOException {
+        checkpoint.write(ByteBuffer.allocate(Long.BYTES).putLong(0, seq), 0);
+        checkpoint.force(false);
+        committedSeq = seq;
+    }
+
+    // Una riga (senza a capo) in coda al file degli scarti, su disco prima di tornare
+    synchronized void deadLetter(byte[] line) throws IOException {
+        try (FileChannel channel = FileChannel.open(deadLetters,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    synchronized List<byte[]> deadLetters() throws IOException {
+        if (!Files.exists(deadLetters)) {
+            return List.of();
+        }
+        List<byte[]> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(deadLetters, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                lines.add(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Append left;
+        while ((left = queue.poll()) != null) {
+            left.done().completeExceptionally(new IOException("Journal ordini chiuso"));
+        }
+        log.close();
+        checkpoint.close();
+    }
+
+    private void run() {
+        List<Append> group = new ArrayList<>(MAX_GROUP);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    compactIfDrained();
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP - 1);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                for (Append append : group) {
+                    append.done().completeExceptionally(e);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<Append> group) throws IOException {
+        int bytes = 0;
+        for (Append append : group) {
+            bytes += HEADER_BYTES + append.payload().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        long seq = lastSeq;
+        for (Append append : group) {
+            int start = buffer.position();
+            buffer.putInt(append.payload().length).putInt(0).putLong(++seq).put(append.payload());
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), start + 8, 8 + append.payload().length);
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+        buffer.flip();
+
+        long position = log.size();
+        try {
+            while (buffer.hasRemaining()) {
+                log.write(buffer, position + buffer.position());
+            }
+            log.force(false);
+        } catch (IOException e) {
+            // Niente record a metà in coda al file: quelli dopo non sarebbero più leggibili
+            log.truncate(position);
+            throw e;
+        }
+
+        long first = lastSeq + 1;
+        lastSeq = seq;
+        for (int i = 0; i < group.size(); i++) {
+            Entry entry = new Entry(first + i, group.get(i).payload());
+            onDurable.accept(entry);
+            group.get(i).done().complete(entry.seq());
+        }
+    }
+
+    // A journal fermo e tutto già sul DB il file si può svuotare (il checkpoint è già su disco)
+    private void compactIfDrained() throws IOException {
+        if (lastSeq == committedSeq && log.size() > compactBytes) {
+            log.truncate(0);
+            log.force(true);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (checkpoint.size() < Long.BYTES) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        readFully(checkpoint, buffer, 0);
+        return buffer.getLong(0);
+    }
+
+    private List<Entry> recover() throws IOException {
+        List<Entry> pending = new ArrayList<>();
+        long size = log.size();
+        long position = 0;
+        long maxSeq = committedSeq;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(log, header, position);
+            int length = header.getInt(0);
+            if (length < 0 || length > MAX_RECORD_BYTES || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            readFully(log, ByteBuffer.wrap(payload), position + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(header.array(), 8, 8);
+            crc.update(payload);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            long seq = header.getLong(8);
+            if (seq > committedSeq) {
+                pending.add(new Entry(seq, payload));
+            }
+            maxSeq = Math.max(maxSeq, seq);
+            position += HEADER_BYTES + length;
+        }
+        if (position < size) {
+            log.truncate(position); // Coda scritta a metà da un crash
+            log.force(true);
+        }
+        lastSeq = maxSeq;
+        return pending;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.dto.CursorPage;
+import com.dapakino.api.dto.OrderCursor;
+import com.dapakino.api.dto.OrderSearch;
+import com.dapakino.api.model.ArchivedOrder;
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderStatus;
+import com.dapakino.api.repository.ArchivedOrderRepository;
+import com.dapakino.api.repository.OrderRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class OrderService {
+
+    public static final String INVIATO = "INVIATO";
+    public static final String RIFIUTATO = "RIFIUTATO";
+
+    // Stati che la cucina deve ancora gestire
+    public static final List<String> KITCHEN_STATUSES = List.of(INVIATO, "IN_PREPARAZIONE", "IN_CONSEGNA");
+
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private record StatusChange(Order order, String oldStatus, String oldTime) {}
+
+    private static final Comparator<OrderCursor> NEWEST_FIRST = Comparator
+            .comparing(OrderCursor::orderDate, Comparator.nullsFirst(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(OrderCursor::id, Comparator.reverseOrder());
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrders;
+    private final OrderItemService orderItems;
+    private final SlotCapacityService slotCapacity;
+    private final KitchenEventService kitchenEvents;
+    private final ActiveOrderStore activeOrders;
+    private final SalesRollupService salesRollups;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderService(OrderRepository orderRepository, ArchivedOrderRepository archivedOrders, OrderItemService orderItems,
+                        SlotCapacityService slotCapacity, KitchenEventService kitchenEvents, ActiveOrderStore activeOrders,
+                        SalesRollupService salesRollups, TransactionTemplate transactionTemplate) {
+        this.orderRepository = orderRepository;
+        this.archivedOrders = archivedOrders;
+        this.orderItems = orderItems;
+        this.slotCapacity = slotCapacity;
+        this.kitchenEvents = kitchenEvents;
+        this.activeOrders = activeOrders;
+        this.salesRollups = salesRollups;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Prenota il posto nella fascia PRIMA di salvare: due checkout concorrenti
+    // sull'ultimo posto libero non possono passare entrambi.
+    // Con una submissionKey (Idempotency-Key) un ordine già salvato con la stessa chiave viene restituito
+    // così com'è: niente seconda INSERT e niente secondo posto occupato.
+    public Order placeOrder(Order order) {
+        String key = order.getSubmissionKey();
+        if (key != null) {
+            Optional<Order> existing = findSubmitted(key, order);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+        // Un ordine nuovo parte sempre da INVIATO e con l'ora del server, qualunque cosa mandi il client:
+        // orderDate decide la giornata su cui si prenota il forno
+        order.setStatus(INVIATO);
+        order.setOrderDate(LocalDateTime.now());
+
+        LocalDate day = order.getOrderDate().toLocalDate();
+        orderItems.resolveItems(order); // Righe dal menu in memoria: servono già per il peso sul forno
+        String slot = SlotSchedule.normalize(order.getDeliveryTime());
+        order.setDeliveryTime(slot);
+        int units = slotCapacity.units(order.getItems());
+        order.setOvenUnits(units); // Si libera esattamente questo, qualunque cosa cambi nel menu
+        if (slot != null) {
+            slotCapacity.reserve(day, slot, units);
+        }
+
+        Order saved;
+        try {
+            // Ordine e righe nella stessa transazione; le righe partono in batch JDBC
+            saved = transactionTemplate.execute(tx -> {
+                orderItems.linkItems(order);
+                return orderRepository.save(order);
+            });
+        } catch (RuntimeException e) {
+            if (slot != null) {
+                slotCapacity.release(day, slot, units); // Salvataggio fallito: restituiamo il posto
+            }
+            // Stessa chiave salvata in contemporanea (altra istanza o cache scaduta): vince il vincolo unico
+            if (key != null && e instanceof DataIntegrityViolationException) {
+                Optional<Order> existing = findSubmitted(key, order);
+                if (existing.isPresent()) {
+                    return existing.get();
+                }
+            }
+            throw e;
+        }
+        activeOrders.apply(saved);
+        kitchenEvents.orderCreated(saved);
+        salesRollups.orderPlaced(saved);
+        return saved;
+    }
+
+    // Una chiave vale solo per il cliente che l'ha generata
+    private Optional<Order> findSubmitted(String key, Order order) {
+        return orderRepository.findBySubmissionKey(key).map(existing -> {
+            Long owner = existing.getUser() == null ? null : existing.getUser().getId();
+            Long requester = order.getUser() == null ? null : order.getUser().getId();
+            if (!Objects.equals(owner, requester)) {
+                throw new IllegalArgumentException("Idempotency-Key già usata per un altro ordine");
+            }
+            return existing;
+        });
+    }
+
+    // expectedVersion (facoltativa) = versione che il tablet ha sullo schermo: se nel frattempo
+    // qualcun altro ha toccato l'ordine si risponde 409 invece di sovrascrivere
+    public Optional<Order> updateStatus(Long id, String newStatus, String newTime, Long expectedVersion) {
+        OrderStatus target = newStatus == null ? null : OrderStatus.parse(newStatus);
+        orderRepository.findOrderDateById(id).ifPresent(date -> slotCapacity.prepare(date.toLocalDate()));
+        Optional<StatusChange> change = transactionTemplate.execute(tx ->
+                orderRepository.findWithItemsById(id).map(order -> {
+                    if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+                        throw new ObjectOptimisticLockingFailureException(Order.class, id);
+                    }
+                    OrderStatus current = order.getStatus() == null ? OrderStatus.INVIATO : OrderStatus.parse(order.getStatus());
+                    if (target != null && !current.canMoveTo(target)) {
+                        throw new StatusConflictException("Passaggio non ammesso: " + current + " -> " + target, List.of(id));
+                    }
+                    StatusChange before = new StatusChange(order, order.getStatus(), order.getDeliveryTime());
+                    if (target != null) order.setStatus(target.name());
+                    if (newTime != null) order.setDeliveryTime(SlotSchedule.normalize(newTime)); // Aggiorna l'orario
+                    return before; // Salvato dal dirty checking al commit (con controllo di @Version)
+                }));
+
+        // Contatori ed eventi solo a commit avvenuto
+        return change.map(c -> {
+            Order saved = c.order();
+            if (saved.getOrderDate() != null) {
+                slotCapacity.onOrderChanged(saved.getOrderDate().toLocalDate(),
+                        c.oldStatus(), c.oldTime(), saved.getStatus(), saved.getDeliveryTime(),
+                        slotCapacity.units(saved));
+            }
+            activeOrders.apply(saved);
+            kitchenEvents.orderUpdated(saved);
+            salesRollups.orderChanged(saved, c.oldStatus(), c.oldTime());
+            return saved;
+        });
+    }
+
+    // Sposta un gruppo di ordini da "from" a "to" con un solo UPDATE, tutto o niente:
+    // se anche uno solo non è più in "from" (lo ha già mosso un altro tablet) non cambia nulla
+    // e si risponde con l'elenco degli ordini in conflitto.
+    public List<Order> updateStatusBatch(List<Long> ids, String from, String to) {
+        OrderStatus source = OrderStatus.parse(from);
+        OrderStatus target = OrderStatus.parse(to);
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Nessun ordine indicato");
+        }
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        if (distinctIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Al massimo " + MAX_BATCH_SIZE + " ordini per volta");
+        }
+        if (source == target || !source.canMoveTo(target)) {
+            throw new StatusConflictException("Passaggio non ammesso: " + source + " -> " + target, distinctIds);
+        }
+
+        // Giornate in memoria prima dell'UPDATE: il delta dopo il commit si applica una volta sola
+        for (LocalDateTime date : orderRepository.findOrderDatesByIdIn(distinctIds)) {
+            slotCapacity.prepare(date.toLocalDate());
+        }
+        Integer updated = transactionTemplate.execute(tx -> {
+            int count = orderRepository.transitionStatus(distinctIds, source.name(), target.name());
+            if (count != distinctIds.size()) {
+                tx.setRollbackOnly();
+            }
+            return count;
+        });
+        if (updated == null || updated != distinctIds.size()) {
+            List<Long> conflicts = new ArrayList<>(distinctIds);
+            for (OrderRepository.StatusRow row : orderRepository.findStatusByIdIn(distinctIds)) {
+                if (source.name().equals(row.getStatus())) {
+                    conflicts.remove(row.getId());
+                }
+            }
+            throw new StatusConflictException("Alcuni ordini non sono più in stato " + source, conflicts);
+        }
+
+        List<Order> orders = loadInOrder(distinctIds);
+        activeOrders.apply(orders); // Una sola fotografia nuova per tutta l'infornata
+        for (Order order : orders) {
+            if (order.getOrderDate() != null) {
+                slotCapacity.onOrderChanged(order.getOrderDate().toLocalDate(),
+                        source.name(), order.getDeliveryTime(), target.name(), order.getDeliveryTime(),
+                        slotCapacity.units(order));
+            }
+            kitchenEvents.orderUpdated(order);
+            salesRollups.orderChanged(order, source.name(), order.getDeliveryTime());
+        }
+        return orders;
+    }
+
+    // Storico utente a pagine: tempo di risposta costante anche con centinaia di ordini.
+    // Legge sia gli ordini attivi sia l'archivio e fonde le due liste: per il cliente è un'unica cronologia
+    public CursorPage<Order> userHistory(Long userId, OrderCursor after, int limit) {
+        int size = pageSize(limit);
+        Limit fetch = Limit.of(size + 1);
+        List<OrderCursor> hot = after == null
+                ? orderRepository.findHistoryKeys(userId, fetch)
+                : orderRepository.findHistoryKeysAfter(userId, after.orderDate(), after.id(), fetch);
+        List<OrderCursor> archived = after == null
+                ? archivedOrders.findHistoryKeys(userId, fetch)
+                : archivedOrders.findHistoryKeysAfter(userId, after.orderDate(), after.id(), fetch);
+        return page(hot, archived, size);
+    }
+
+    public CursorPage<Order> search(OrderSearch search, int limit) {
+        int size = pageSize(limit);
+        List<OrderCursor> hot = orderRepository.searchKeys(search, false, size + 1);
+        // In archivio ci sono solo ordini chiusi: per uno stato della cucina è inutile cercarci
+        boolean activeStatus = search.status() != null && KITCHEN_STATUSES.contains(search.status());
+        List<OrderCursor> archived = activeStatus ? List.of() : orderRepository.searchKeys(search, true, size + 1);
+        return page(hot, archived, size);
+    }
+
+    // Chiediamo una chiave in più del necessario: se arriva, esiste una pagina successiva
+    private CursorPage<Order> page(List<OrderCursor> hot, List<OrderCursor> archived, int size) {
+        List<OrderCursor> keys = merge(hot, archived, size + 1);
+        boolean hasMore = keys.size() > size;
+        List<OrderCursor> pageKeys = hasMore ? keys.subList(0, size) : keys;
+
+        Set<Long> archivedIds = new HashSet<>();
+        for (OrderCursor key : archived) {
+            archivedIds.add(key.id());
+        }
+        List<Long> hotIds = new ArrayList<>();
+        List<Long> coldIds = new ArrayList<>();
+        for (OrderCursor key : pageKeys) {
+            (archivedIds.contains(key.id()) ? coldIds : hotIds).add(key.id());
+        }
+
+        Map<Long, Order> byId = new HashMap<>();
+        if (!hotIds.isEmpty()) {
+            for (Order order : orderRepository.findWithItemsByIdIn(hotIds)) {
+                byId.put(order.getId(), order);
+            }
+        }
+        if (!coldIds.isEmpty()) {
+            for (ArchivedOrder order : archivedOrders.findWithItemsByIdIn(coldIds)) {
+                byId.put(order.getId(), order.toOrder());
+            }
+        }
+        List<Order> orders = new ArrayList<>(pageKeys.size());
+        for (OrderCursor key : pageKeys) {
+            Order order = byId.get(key.id());
+            if (order != null) {
+                orders.add(order);
+            }
+        }
+        String nextCursor = hasMore && !pageKeys.isEmpty() ? pageKeys.get(pageKeys.size() - 1).encode() : null;
+        return new CursorPage<>(orders, nextCursor);
+    }
+
+    // Fusione di due liste già ordinate per (orderDate DESC, id DESC). Un ordine archiviato mentre
+    // leggevamo può comparire in entrambe: lo teniamo una volta sola
+    private static List<OrderCursor> merge(List<OrderCursor> first, List<OrderCursor> second, int max) {
+        List<OrderCursor> merged = new ArrayList<>(Math.min(max, first.size() + second.size()));
+        Set<Long> seen = new HashSet<>();
+        int i = 0;
+        int j = 0;
+        while (merged.size() < max && (i < first.size() || j < second.size())) {
+            OrderCursor next;
+            if (j >= second.size() || (i < first.size() && NEWEST_FIRST.compare(first.get(i), second.get(j)) <= 0)) {
+                next = first.get(i++);
+            } else {
+                next = second.get(j++);
+            }
+            if (seen.add(next.id())) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+
+    private List<Order> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findWithItemsByIdIn(ids)) {
+            byId.put(order.getId(), order);
+        }
+        List<Order> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order order = byId.get(id);
+            if (order != null) {
+                ordered.add(order);
+            }
+        }
+        return ordered;
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+}
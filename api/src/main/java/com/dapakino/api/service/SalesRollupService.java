@@ -0,0 +1,389 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.DailySales;
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderItem;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.model.ProductSales;
+import com.dapakino.api.model.SlotSales;
+import com.dapakino.api.repository.ArchivedOrderRepository;
+import com.dapakino.api.repository.DailySalesRepository;
+import com.dapakino.api.repository.OrderItemRepository;
+import com.dapakino.api.repository.OrderRepository;
+import com.dapakino.api.repository.ProductSalesRepository;
+import com.dapakino.api.repository.SlotSalesRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Rollup delle vendite (giorno, fascia, prodotto) aggiornati a ogni ordine con incrementi atomici
+// (UPDATE ... SET x = x + :delta), così i report non scansionano mai "orders".
+// Gli incrementi partono dopo il commit dell'ordine, in una transazione breve a parte: se qualcosa va storto
+// l'ordine resta valido e i totali si riallineano con rebuild().
+// L'incasso per prodotto è il totalAmount dell'ordine ripartito sulle righe (revenueShares): sommando i prodotti
+// e le righe senza prodotto (consegna) di un giorno si ritrova l'incasso del giorno, aggiunte comprese.
+@Service
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int DAY_LOCKS = 64;
+
+    // Variazione da applicare ai rollup di una giornata
+    private static final class Delta {
+        final LocalDate day;
+        long orders;
+        long rejected;
+        BigDecimal revenue = BigDecimal.ZERO;
+        final Map<String, SlotSales> slots = new LinkedHashMap<>();
+        final Map<Long, ProductSales> products = new LinkedHashMap<>();
+
+        Delta(LocalDate day) {
+            this.day = day;
+        }
+
+        boolean isEmpty() {
+            return orders == 0 && rejected == 0 && revenue.signum() == 0 && slots.isEmpty() && products.isEmpty();
+        }
+    }
+
+    private final DailySalesRepository dailySales;
+    private final SlotSalesRepository slotSales;
+    private final ProductSalesRepository productSales;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderRepository archivedOrders;
+    private final MenuSnapshotService menuSnapshot;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // Un lock per giorno (a strisce): gli incrementi prendono la lettura e vanno in parallelo tra loro,
+    // la ricostruzione di quel giorno prende la scrittura e li fa aspettare fino al suo commit
+    private final ReadWriteLock[] dayLocks = new ReadWriteLock[DAY_LOCKS];
+
+    public SalesRollupService(DailySalesRepository dailySales, SlotSalesRepository slotSales,
+                              ProductSalesRepository productSales, OrderRepository orderRepository,
+                              OrderItemRepository orderItemRepository, ArchivedOrderRepository archivedOrders,
+                              MenuSnapshotService menuSnapshot,
+                              EntityManager entityManager, TransactionTemplate transactionTemplate,
+                              @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.dailySales = dailySales;
+        this.slotSales = slotSales;
+        this.productSales = productSales;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrders = archivedOrders;
+        this.menuSnapshot = menuSnapshot;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.taskExecutor = taskExecutor;
+        for (int i = 0; i < DAY_LOCKS; i++) {
+            dayLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public void orderPlaced(Order order) {
+        if (order.getOrderDate() == null) {
+            return;
+        }
+        Delta delta = new Delta(order.getOrderDate().toLocalDate());
+        if (OrderService.RIFIUTATO.equals(order.getStatus())) {
+            delta.rejected++;
+        } else {
+            addOrder(delta, order, order.getDeliveryTime(), 1);
+        }
+        apply(delta);
+    }
+
+    // Un ordine rifiutato esce dai totali (e conta tra i rifiutati); uno spostato di fascia cambia riga
+    public void orderChanged(Order order, String oldStatus, String oldTime) {
+        if (order.getOrderDate() == null) {
+            return;
+        }
+        boolean wasCounted = !OrderService.RIFIUTATO.equals(oldStatus);
+        boolean isCounted = !OrderService.RIFIUTATO.equals(order.getStatus());
+        Delta delta = new Delta(order.getOrderDate().toLocalDate());
+
+        if (wasCounted && !isCounted) {
+            addOrder(delta, order, oldTime, -1);
+            delta.rejected++;
+        } else if (!wasCounted && isCounted) {
+            addOrder(delta, order, order.getDeliveryTime(), 1);
+            delta.rejected--;
+        } else if (wasCounted && !Objects.equals(oldTime, order.getDeliveryTime())) {
+            BigDecimal amount = amount(order);
+            addSlot(delta, oldTime, -1, amount.negate());
+            addSlot(delta, order.getDeliveryTime(), 1, amount);
+        }
+        if (!delta.isEmpty()) {
+            apply(delta);
+        }
+    }
+
+    // Ricostruzione da storico, un giorno per transazione (memoria e lock limitati a una giornata).
+    // Solo giorni chiusi (fino a ieri): sul giorno in corso un ordine già committato ma col suo incremento
+    // ancora in volo verrebbe contato dalla ricostruzione e poi di nuovo dall'incremento.
+    // Sui giorni chiusi arrivano solo cambi di stato tardivi, e il lock del giorno li mette in fila.
+    public boolean startRebuild(LocalDate from, LocalDate to) {
+        LocalDate lastClosed = LocalDate.now().minusDays(1);
+        if ((from != null && from.isAfter(lastClosed)) || (to != null && to.isAfter(lastClosed))) {
+            throw new IllegalArgumentException("Si ricostruiscono solo giorni chiusi (fino al " + lastClosed + ")");
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false; // Già in corso
+        }
+        taskExecutor.execute(() -> {
+            try {
+                LocalDate start = from != null ? from : firstOrderDay();
+                LocalDate end = to != null ? to : lastClosed;
+                int days = 0;
+                for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                    LocalDate current = day;
+                    Lock lock = lockFor(current).writeLock();
+                    lock.lock();
+                    try {
+                        transactionTemplate.executeWithoutResult(tx -> rebuildDay(current));
+                    } finally {
+                        lock.unlock();
+                    }
+                    days++;
+                }
+                log.info("Rollup vendite ricostruiti: {} giorni ({} - {})", days, start, end);
+            } catch (RuntimeException e) {
+                log.error("Ricostruzione rollup vendite interrotta", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    // Il primo ordine può stare in archivio o (se l'archiviazione non è mai girata) ancora in "orders"
+    private LocalDate firstOrderDay() {
+        return Stream.of(orderRepository.findFirstOrderDate(), archivedOrders.findFirstOrderDate())
+                .flatMap(Optional::stream)
+                .min(LocalDateTime::compareTo)
+                .map(LocalDateTime::toLocalDate)
+                .orElse(LocalDate.now());
+    }
+
+    // Somma le due parti: ordini ancora in "orders" e ordini già archiviati
+    private void rebuildDay(LocalDate day) {
+        dailySales.deleteByDay(day);
+        slotSales.deleteByDay(day);
+        productSales.deleteByDay(day);
+
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        OrderRepository.DayTotals hot = orderRepository.sumDay(start, end);
+        OrderRepository.DayTotals archived = archivedOrders.sumDay(start, end);
+        long total = count(hot == null ? null : hot.getTotal()) + count(archived == null ? null : archived.getTotal());
+        if (total == 0) {
+            return;
+        }
+        long rejected = count(hot == null ? null : hot.getRejected()) + count(archived == null ? null : archived.getRejected());
+        BigDecimal revenue = money(hot == null ? null : hot.getRevenue()).add(money(archived == null ? null : archived.getRevenue()));
+        entityManager.persist(new DailySales(day, total - rejected, rejected, revenue));
+
+        Map<String, SlotSales> slots = new LinkedHashMap<>();
+        for (OrderRepository.SlotTotals slot : concat(orderRepository.sumSlots(start, end), archivedOrders.sumSlots(start, end))) {
+            SlotSales row = slots.computeIfAbsent(slot.getDeliveryTime(), s -> new SlotSales(day, s, 0, BigDecimal.ZERO));
+            row.setOrderCount(row.getOrderCount() + count(slot.getTotal()));
+            row.setRevenue(row.getRevenue().add(money(slot.getRevenue())));
+        }
+        slots.values().forEach(entityManager::persist);
+
+        // Righe in ordine di id ordine: si ripartisce un ordine alla volta, con le stesse regole di addOrder
+        Map<Long, Product> menu = menuSnapshot.get().productsById();
+        Map<Long, ProductSales> products = new LinkedHashMap<>();
+        List<OrderItemRepository.SoldLine> order = new ArrayList<>();
+        for (OrderItemRepository.SoldLine line : concat(orderItemRepository.findSoldLines(start, end), archivedOrders.findSoldLines(start, end))) {
+            if (!order.isEmpty() && !order.get(0).getOrderId().equals(line.getOrderId())) {
+                addSoldLines(day, menu, products, order);
+                order.clear();
+            }
+            order.add(line);
+        }
+        addSoldLines(day, menu, products, order);
+        products.values().forEach(entityManager::persist);
+    }
+
+    private static void addSoldLines(LocalDate day, Map<Long, Product> menu, Map<Long, ProductSales> products,
+                                     List<OrderItemRepository.SoldLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        List<BigDecimal> shares = revenueShares(money(lines.get(0).getTotalAmount()),
+                lines.stream().map(line -> lineAmount(line.getUnitPrice(), line.getQuantity())).toList());
+        for (int i = 0; i < lines.size(); i++) {
+            OrderItemRepository.SoldLine line = lines.get(i);
+            if (line.getProductId() == null) {
+                continue;
+            }
+            ProductSales row = products.computeIfAbsent(line.getProductId(), id -> new ProductSales(
+                    day, id, line.getProductName(), categoryName(menu, id), 0, BigDecimal.ZERO));
+            row.setQuantity(row.getQuantity() + line.getQuantity());
+            row.setRevenue(row.getRevenue().add(shares.get(i)));
+        }
+    }
+
+    // Ripartisce il totale dell'ordine sulle righe in proporzione a prezzo x quantità (gli ordini vecchi
+    // hanno le aggiunte solo nelle note, fuori dal prezzo di riga);
+    // se le righe non hanno prezzo, in parti uguali. L'ultima riga prende i centesimi di arrotondamento,
+    // così la somma delle quote è esattamente il totale
+    static List<BigDecimal> revenueShares(BigDecimal total, List<BigDecimal> lineAmounts) {
+        List<BigDecimal> shares = new ArrayList<>(lineAmounts.size());
+        if (lineAmounts.isEmpty()) {
+            return shares;
+        }
+        BigDecimal base = lineAmounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal assigned = BigDecimal.ZERO;
+        for (int i = 0; i < lineAmounts.size() - 1; i++) {
+            BigDecimal share = base.signum() == 0
+                    ? total.divide(BigDecimal.valueOf(lineAmounts.size()), 2, RoundingMode.HALF_UP)
+                    : total.multiply(lineAmounts.get(i)).divide(base, 2, RoundingMode.HALF_UP);
+            shares.add(share);
+            assigned = assigned.add(share);
+        }
+        shares.add(total.subtract(assigned));
+        return shares;
+    }
+
+    private static BigDecimal lineAmount(BigDecimal unitPrice, Integer quantity) {
+        if (unitPrice == null || quantity == null) {
+            return BigDecimal.ZERO;
+        }
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+
+    private ReadWriteLock lockFor(LocalDate day) {
+        return dayLocks[Math.floorMod(day.toEpochDay(), DAY_LOCKS)];
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        List<T> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static long count(Number value) {
+        return value == null ? 0 : value.longValue();
+    }
+
+    // UPDATE atomico; se la riga non esiste ancora la creiamo. Se due ordini creano la stessa riga insieme
+    // uno dei due fallisce sul vincolo di chiave e riprova: al secondo giro la riga c'è e fa solo l'UPDATE.
+    private void apply(Delta delta) {
+        Lock lock = lockFor(delta.day).readLock();
+        lock.lock();
+        try {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> applyOnce(delta));
+                    return;
+                } catch (DataIntegrityViolationException e) {
+                    log.debug("Rollup {} creato in contemporanea, nuovo tentativo", delta.day);
+                } catch (RuntimeException e) {
+                    log.warn("Rollup vendite del {} non aggiornati (rilanciare la ricostruzione): {}", delta.day, e.getMessage());
+                    return;
+                }
+            }
+            log.warn("Rollup vendite del {} non aggiornati dopo {} tentativi", delta.day, MAX_ATTEMPTS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyOnce(Delta delta) {
+        if (dailySales.increment(delta.day, delta.orders, delta.rejected, delta.revenue) == 0) {
+            entityManager.persist(new DailySales(delta.day, delta.orders, delta.rejected, delta.revenue));
+        }
+        for (SlotSales slot : delta.slots.values()) {
+            if (slotSales.increment(delta.day, slot.getDeliveryTime(), slot.getOrderCount(), slot.getRevenue()) == 0) {
+                entityManager.persist(new SlotSales(delta.day, slot.getDeliveryTime(), slot.getOrderCount(), slot.getRevenue()));
+            }
+        }
+        for (ProductSales product : delta.products.values()) {
+            if (productSales.increment(delta.day, product.getProductId(), product.getQuantity(), product.getRevenue()) == 0) {
+                entityManager.persist(new ProductSales(delta.day, product.getProductId(), product.getProductName(),
+                        product.getCategoryName(), product.getQuantity(), product.getRevenue()));
+            }
+        }
+    }
+
+    private void addOrder(Delta delta, Order order, String slot, int sign) {
+        BigDecimal amount = amount(order);
+        delta.orders += sign;
+        delta.revenue = delta.revenue.add(sign > 0 ? amount : amount.negate());
+        addSlot(delta, slot, sign, sign > 0 ? amount : amount.negate());
+
+        Map<Long, Product> menu = menuSnapshot.get().productsById();
+        List<OrderItem> items = order.getItems();
+        List<BigDecimal> shares = revenueShares(amount,
+                items.stream().map(item -> lineAmount(item.getUnitPrice(), item.getQuantity())).toList());
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            if (item.getProductId() == null) {
+                continue;
+            }
+            BigDecimal revenue = sign > 0 ? shares.get(i) : shares.get(i).negate();
+            ProductSales row = delta.products.computeIfAbsent(item.getProductId(), id -> new ProductSales(
+                    delta.day, id, item.getProductName(), categoryName(menu, id), 0, BigDecimal.ZERO));
+            row.setQuantity(row.getQuantity() + (long) item.getQuantity() * sign);
+            row.setRevenue(row.getRevenue().add(revenue));
+        }
+    }
+
+    private static void addSlot(Delta delta, String slot, int orders, BigDecimal revenue) {
+        if (slot == null) {
+            return;
+        }
+        SlotSales row = delta.slots.computeIfAbsent(slot, s -> new SlotSales(delta.day, s, 0, BigDecimal.ZERO));
+        row.setOrderCount(row.getOrderCount() + orders);
+        row.setRevenue(row.getRevenue().add(revenue));
+    }
+
+    private static String categoryName(Map<Long, Product> menu, Long productId) {
+        Product product = menu.get(productId);
+        return product == null || product.getCategory() == null ? null : product.getCategory().getName();
+    }
+
+    private static BigDecimal amount(Order order) {
+        return order.getTotalAmount() == null ? BigDecimal.ZERO : money(order.getTotalAmount());
+    }
+
+    private static BigDecimal money(Number value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal amount = value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,192 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderItem;
+import com.dapakino.api.model.Product;
+import com.dapakino.api.repository.OrderRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Capienza delle fasce di consegna misurata sul forno: ogni ordine occupa le unità dei suoi pezzi
+// (vedi SlotSchedule), non "un posto". Al primo accesso della giornata carica i pezzi per fascia
+// con UNA query raggruppata, poi tiene tutto in memoria (SlotLedger).
+// Dopo un riavvio il registro si ricostruisce da solo dal DB.
+// Le unità prenotate restano scritte sull'ordine (ovenUnits): rilascio e ricarica usano quel numero,
+// non il menu di adesso, così il registro non deriva se i costi cambiano tra prenotazione e rilascio.
+@Service
+public class SlotCapacityService {
+
+    public static final int MIN_UNITS = 1;
+
+    private record Day(SlotSchedule.DayPlan plan, SlotLedger ledger) {}
+
+    private final OrderRepository orderRepository;
+    private final SlotSchedule schedule;
+    private final MenuSnapshotService menuSnapshot;
+    private final ConcurrentHashMap<LocalDate, Day> days = new ConcurrentHashMap<>();
+
+    public SlotCapacityService(OrderRepository orderRepository, SlotSchedule schedule, MenuSnapshotService menuSnapshot) {
+        this.orderRepository = orderRepository;
+        this.schedule = schedule;
+        this.menuSnapshot = menuSnapshot;
+    }
+
+    // Fasce ancora prenotabili in cui entra un carrello da "units" unità di forno
+    public List<String> availableSlots(LocalDate day, int units) {
+        Day state = dayFor(day);
+        List<LocalTime> slots = state.plan().slots();
+        List<String> available = new ArrayList<>();
+        for (int slot = schedule.firstBookable(day, state.plan()); slot < slots.size(); slot++) {
+            if (state.ledger().fits(slot, units)) {
+                available.add(SlotSchedule.format(slots.get(slot)));
+            }
+        }
+        return available;
+    }
+
+    // La prima fascia in cui il carrello entra, dal carico in memoria
+    public Optional<String> earliestSlot(LocalDate day, int units) {
+        Day state = dayFor(day);
+        int slot = state.ledger().earliestFit(schedule.firstBookable(day, state.plan()), units);
+        return slot < 0 ? Optional.empty() : Optional.of(SlotSchedule.format(state.plan().slots().get(slot)));
+    }
+
+    // Unità di forno di un carrello: quantità x costo della categoria, dal menu in memoria.
+    // Almeno MIN_UNITS per ordine: anche solo bevande, o righe mancanti, occupano la cucina e passano dal limite
+    public int units(List<OrderItem> items) {
+        int units = 0;
+        if (items != null) {
+            Map<Long, Product> products = menuSnapshot.get().productsById();
+            for (OrderItem item : items) {
+                if (item.isSurcharge()) {
+                    continue; // Consegna e simili non passano dal forno
+                }
+                Product product = item.getProductId() == null ? null : products.get(item.getProductId());
+                units += item.getQuantity() * schedule.cost(product);
+            }
+        }
+        return Math.max(MIN_UNITS, units);
+    }
+
+    // Le unità che l'ordine ha davvero occupato; per gli ordini di prima di ovenUnits si ricalcolano
+    public int units(Order order) {
+        return order.getOvenUnits() != null ? order.getOvenUnits() : units(order.getItems());
+    }
+
+    // Prenota le unità del carrello sulla fascia (già normalizzata "HH:mm").
+    // Fascia piena, passata o fuori orario -> SlotUnavailableException con la prima alternativa valida
+    public void reserve(LocalDate day, String slot, int units) {
+        Day state = dayFor(day);
+        int index = state.plan().indexOf(slot);
+        boolean bookable = index >= 0 && index >= schedule.firstBookable(day, state.plan());
+        if (!bookable || !state.ledger().tryReserve(index, units)) {
+            throw new SlotUnavailableException(slot, earliestSlot(day, units).orElse(null));
+        }
+    }
+
+    // Prenotazione forzata, senza limite: ordini già accettati che il registro non conta ancora
+    public void add(LocalDate day, String slot, int units) {
+        Day state = dayFor(day);
+        int index = state.plan().indexOf(slot);
+        if (index >= 0) {
+            state.ledger().add(index, units);
+        }
+    }
+
+    public void release(LocalDate day, String slot, int units) {
+        Day state = dayFor(day);
+        int index = state.plan().indexOf(slot);
+        if (index >= 0) {
+            state.ledger().release(index, units);
+        }
+    }
+
+    // Porta in memoria la giornata PRIMA della transazione che cambia un ordine: caricata dopo il commit
+    // conterrebbe già il cambio e onOrderChanged lo conterebbe due volte
+    public void prepare(LocalDate day) {
+        dayFor(day);
+    }
+
+    // Allinea il carico quando la cucina cambia stato o orario di un ordine (a commit avvenuto).
+    // Gli ordini RIFIUTATI liberano il forno; gli spostamenti della cucina non guardano il limite
+    // (un orario fuori dalle fasce non pesa su nessuna).
+    public void onOrderChanged(LocalDate day, String oldStatus, String oldSlot, String newStatus, String newSlot, int units) {
+        boolean wasCounted = occupiesSlot(oldStatus, oldSlot);
+        boolean isCounted = occupiesSlot(newStatus, newSlot);
+        if (wasCounted && isCounted && oldSlot.equals(newSlot)) {
+            return;
+        }
+        Day state = days.get(day);
+        if (state == null) {
+            // Giornata uscita dalla memoria nel frattempo: la carichiamo adesso dal DB, che ha già il cambio
+            dayFor(day);
+            return;
+        }
+        if (wasCounted && state.plan().indexOf(oldSlot) >= 0) {
+            state.ledger().release(state.plan().indexOf(oldSlot), units);
+        }
+        if (isCounted && state.plan().indexOf(newSlot) >= 0) {
+            state.ledger().add(state.plan().indexOf(newSlot), units);
+        }
+    }
+
+    private static boolean occupiesSlot(String status, String slot) {
+        return slot != null && !OrderService.RIFIUTATO.equals(status);
+    }
+
+    private Day dayFor(LocalDate day) {
+        Day state = days.get(day);
+        if (state != null) {
+            return state;
+        }
+        // I giorni passati non servono più: il registro resta piccolo
+        LocalDate today = LocalDate.now();
+        days.keySet().removeIf(d -> d.isBefore(today));
+        return days.computeIfAbsent(day, this::load);
+    }
+
+    // Unità per fascia degli ordini salvati prima di ovenUnits: dai pezzi col menu di adesso,
+    // ordine per ordine e con lo stesso minimo di units(Order), che è quanto verrà rilasciato
+    public Map<String, Integer> legacyUnits(LocalDateTime start, LocalDateTime end) {
+        Map<Long, Product> products = menuSnapshot.get().productsById();
+        Map<Long, String> slots = new HashMap<>();
+        Map<Long, Integer> byOrder = new HashMap<>();
+        for (OrderRepository.LegacyLoad row : orderRepository.findLegacyLoad(start, end, OrderService.RIFIUTATO)) {
+            Product product = row.getProductId() == null ? null : products.get(row.getProductId());
+            int units = row.getQuantity() == null ? 0 : row.getQuantity().intValue() * schedule.cost(product);
+            slots.put(row.getOrderId(), row.getDeliveryTime());
+            byOrder.merge(row.getOrderId(), units, Integer::sum);
+        }
+        Map<String, Integer> bySlot = new HashMap<>();
+        byOrder.forEach((orderId, units) -> bySlot.merge(slots.get(orderId), Math.max(MIN_UNITS, units), Integer::sum));
+        return bySlot;
+    }
+
+    private Day load(LocalDate day) {
+        SlotSchedule.DayPlan plan = schedule.planFor(day);
+        SlotLedger ledger = new SlotLedger(plan.slots().size(), plan.ovenUnits());
+        for (OrderRepository.SlotUnits row : orderRepository.sumOvenUnitsBySlot(
+                day.atStartOfDay(), day.atTime(LocalTime.MAX), OrderService.RIFIUTATO)) {
+            int index = plan.indexOf(row.getDeliveryTime());
+            if (index >= 0) {
+                ledger.add(index, row.getUnits().intValue());
+            }
+        }
+        legacyUnits(day.atStartOfDay(), day.atTime(LocalTime.MAX)).forEach((slot, units) -> {
+            int index = plan.indexOf(slot);
+            if (index >= 0) {
+                ledger.add(index, units);
+            }
+        });
+        return new Day(plan, ledger);
+    }
+}
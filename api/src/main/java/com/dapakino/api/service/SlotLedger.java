@@ -0,0 +1,68 @@
+package com.dapakino.api.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Carico del forno per fascia oraria di UNA giornata, in unità (pezzi pesati per categoria, vedi SlotSchedule).
+// Una cella per fascia: prenotazioni su fasce diverse non si contendono nulla,
+// quelle sulla stessa fascia si risolvono con un compare-and-set.
+public class SlotLedger {
+
+    private final AtomicIntegerArray load;
+    private final int capacity;
+
+    public SlotLedger(int slots, int capacity) {
+        this.load = new AtomicIntegerArray(slots);
+        this.capacity = capacity;
+    }
+
+    // Occupa le unità solo se il carrello entra nella fascia. Ritorna false se non c'è posto.
+    // Nessuna scorciatoia per carichi a zero: ogni ordine pesa almeno un'unità (SlotCapacityService.units)
+    public boolean tryReserve(int slot, int units) {
+        while (true) {
+            int current = load.get(slot);
+            if (!fits(current, units)) {
+                return false;
+            }
+            if (load.compareAndSet(slot, current, current + units)) {
+                return true;
+            }
+        }
+    }
+
+    // Aggiunta forzata (es. la cucina sposta un ordine su un orario pieno)
+    public void add(int slot, int units) {
+        load.addAndGet(slot, units);
+    }
+
+    public void release(int slot, int units) {
+        load.getAndUpdate(slot, current -> Math.max(0, current - units));
+    }
+
+    public int load(int slot) {
+        return load.get(slot);
+    }
+
+    public int size() {
+        return load.length();
+    }
+
+    public boolean fits(int slot, int units) {
+        return fits(load.get(slot), units);
+    }
+
+    // Prima fascia da "from" in poi in cui il carrello entra, -1 se nessuna.
+    // Una lettura per fascia e le fasce di una serata sono poche decine: costo fisso, senza DB né lock
+    public int earliestFit(int from, int units) {
+        for (int slot = Math.max(from, 0); slot < load.length(); slot++) {
+            if (fits(slot, units)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Un carrello più grande di una fascia intera entra solo in una fascia vuota (e se la prende tutta)
+    private boolean fits(int current, int units) {
+        return current == 0 || current + units <= capacity;
+    }
+}
@@ -0,0 +1,156 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Orari di apertura, fasce e capacità del forno per giorno della settimana (vedi dapakino.slots.* nelle properties).
+// La capacità è in unità di forno per fascia: ogni pezzo pesa quanto il costo della sua categoria
+// (pizze, focacce e farinate 1, bevande 0), così dieci pizze e una birra non contano uguale.
+// Gli orari sono LocalTime; verso client e DB restano testo "HH:mm" (vedi normalize).
+@Component
+public class SlotSchedule {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Le fasce di un giorno in ordine e le unità di forno che regge ciascuna (nessuna fascia = chiuso)
+    public record DayPlan(List<LocalTime> slots, int ovenUnits) {
+
+        public int indexOf(LocalTime time) {
+            int index = Collections.binarySearch(slots, time);
+            return index >= 0 ? index : -1;
+        }
+
+        public int indexOf(String slot) {
+            LocalTime time = tryParse(slot);
+            return time == null ? -1 : indexOf(time);
+        }
+
+        // Prima fascia non prima di "time" (slots.size() se sono tutte passate)
+        public int firstFrom(LocalTime time) {
+            int index = Collections.binarySearch(slots, time);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    private final Map<DayOfWeek, DayPlan> plans = new EnumMap<>(DayOfWeek.class);
+    private final Map<String, Integer> categoryCosts = new HashMap<>();
+    private final int defaultCost;
+    private final Duration leadTime;
+
+    public SlotSchedule(Environment environment,
+                        @Value("${dapakino.slots.step:15m}") Duration step,
+                        @Value("${dapakino.slots.lead-time:20m}") Duration leadTime,
+                        @Value("${dapakino.slots.default-cost:1}") int defaultCost,
+                        @Value("${dapakino.slots.category-costs:Le Bevande:0}") String categoryCosts) {
+        this.defaultCost = defaultCost;
+        this.leadTime = leadTime;
+        String hours = environment.getProperty("dapakino.slots.hours", "18:30-22:30");
+        int ovenUnits = environment.getProperty("dapakino.slots.oven-units", Integer.class, 12);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            String suffix = "." + day.name().toLowerCase(Locale.ROOT);
+            plans.put(day, plan(environment.getProperty("dapakino.slots.hours" + suffix, hours),
+                    environment.getProperty("dapakino.slots.oven-units" + suffix, Integer.class, ovenUnits), step));
+        }
+        // "Le Bevande:0,Le Focacce:1"
+        for (String entry : categoryCosts.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon > 0) {
+                this.categoryCosts.put(entry.substring(0, colon).trim(), Integer.parseInt(entry.substring(colon + 1).trim()));
+            }
+        }
+    }
+
+    public DayPlan planFor(LocalDate day) {
+        return plans.get(day.getDayOfWeek());
+    }
+
+    // Unità di forno di un pezzo; prodotto sconosciuto (tolto dal menu) = costo di default
+    public int cost(Product product) {
+        if (product == null || product.getCategory() == null) {
+            return defaultCost;
+        }
+        return categoryCosts.getOrDefault(product.getCategory().getName(), defaultCost);
+    }
+
+    // Prima fascia prenotabile: per oggi non prima di adesso + lead-time (il forno deve fare in tempo)
+    public int firstBookable(LocalDate day, DayPlan plan) {
+        LocalDate today = LocalDate.now();
+        if (day.isBefore(today)) {
+            return plan.slots().size();
+        }
+        if (day.isAfter(today)) {
+            return 0;
+        }
+        LocalTime now = LocalTime.now();
+        LocalTime earliest = now.plus(leadTime);
+        return earliest.isBefore(now) ? plan.slots().size() : plan.firstFrom(earliest); // Oltre la mezzanotte
+    }
+
+    // "19:30:00" -> "19:30"; un orario che non si legge è un errore del client
+    public static String normalize(String slot) {
+        if (slot == null) {
+            return null;
+        }
+        LocalTime time = tryParse(slot);
+        if (time == null) {
+            throw new IllegalArgumentException("Orario non valido: " + slot);
+        }
+        return format(time);
+    }
+
+    public static String format(LocalTime time) {
+        return FORMAT.format(time);
+    }
+
+    static List<LocalTime> slots(LocalTime open, LocalTime close, Duration step) {
+        List<LocalTime> slots = new ArrayList<>();
+        for (LocalTime time = open; !time.isAfter(close); time = time.plus(step)) {
+            slots.add(time);
+            if (time.plus(step).isBefore(time)) {
+                break; // Giro della mezzanotte
+            }
+        }
+        return slots;
+    }
+
+    // "18:30-22:30" oppure "closed"
+    private static DayPlan plan(String hours, int ovenUnits, Duration step) {
+        if ("closed".equalsIgnoreCase(hours.trim())) {
+            return new DayPlan(List.of(), ovenUnits);
+        }
+        String[] range = hours.split("-");
+        if (range.length != 2) {
+            throw new IllegalArgumentException("Orario di apertura non valido: " + hours);
+        }
+        LocalTime open = LocalTime.parse(range[0].trim());
+        LocalTime close = LocalTime.parse(range[1].trim());
+        if (close.isBefore(open)) {
+            throw new IllegalArgumentException("Chiusura prima dell'apertura: " + hours);
+        }
+        return new DayPlan(List.copyOf(slots(open, close, step)), ovenUnits);
+    }
+
+    private static LocalTime tryParse(String slot) {
+        try {
+            return LocalTime.parse(slot.trim());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.dapakino.api.service;
+
+public class SlotUnavailableException extends RuntimeException {
+
+    private final String slot;
+    private final String suggestion;
+
+    // suggestion = prima fascia in cui lo stesso carrello entra ancora (null se la serata è piena)
+    public SlotUnavailableException(String slot, String suggestion) {
+        super("Orario " + slot + " non più disponibile"
+                + (suggestion == null ? "" : ", primo orario libero: " + suggestion));
+        this.slot = slot;
+        this.suggestion = suggestion;
+    }
+
+    public String getSlot() {
+        return slot;
+    }
+
+    public String getSuggestion() {
+        return suggestion;
+    }
+}
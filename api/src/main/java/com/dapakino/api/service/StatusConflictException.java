@@ -0,0 +1,18 @@
+package com.dapakino.api.service;
+
+import java.util.List;
+
+// Cambio di stato non applicabile: passaggio non ammesso o ordini già spostati da un altro tablet
+public class StatusConflictException extends RuntimeException {
+
+    private final List<Long> orderIds;
+
+    public StatusConflictException(String message, List<Long> orderIds) {
+        super(message);
+        this.orderIds = List.copyOf(orderIds);
+    }
+
+    public List<Long> getOrderIds() {
+        return orderIds;
+    }
+}
@@ -0,0 +1,117 @@
+-- Schema di partenza (profilo "faststart"): lo stesso che ddl-auto=update ricavava dalle entità.
+-- Su un DB già creato da Hibernate questa versione viene saltata (baseline-on-migrate, baseline-version=1).
+-- Da qui in poi ogni modifica alle entità va accompagnata da una nuova V<n>__*.sql.
+
+CREATE SEQUENCE IF NOT EXISTS categories_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS products_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS orders_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS categories (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_categories_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS products (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    price NUMERIC(38, 2) NOT NULL,
+    image_url VARCHAR(255),
+    category_id BIGINT NOT NULL REFERENCES categories (id),
+    available BOOLEAN NOT NULL,
+    is_monthly_special BOOLEAN NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT NOT NULL PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    address VARCHAR(255),
+    city VARCHAR(255),
+    phone VARCHAR(255),
+    role VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS orders (
+    id BIGINT NOT NULL PRIMARY KEY,
+    user_id BIGINT REFERENCES users (id),
+    order_date TIMESTAMP(6),
+    delivery_time VARCHAR(255),
+    total_amount FLOAT(53),
+    order_details TEXT,
+    status VARCHAR(255),
+    submission_key VARCHAR(64),
+    version BIGINT DEFAULT 0,
+    CONSTRAINT uk_orders_submission_key UNIQUE (submission_key)
+);
+CREATE INDEX IF NOT EXISTS idx_orders_user_date ON orders (user_id, order_date, id);
+CREATE INDEX IF NOT EXISTS idx_orders_status_date ON orders (status, order_date);
+CREATE INDEX IF NOT EXISTS idx_orders_date_slot ON orders (order_date, delivery_time);
+
+CREATE TABLE IF NOT EXISTS order_items (
+    id BIGINT NOT NULL PRIMARY KEY,
+    order_id BIGINT NOT NULL REFERENCES orders (id),
+    product_id BIGINT REFERENCES products (id),
+    product_name VARCHAR(255),
+    quantity INTEGER NOT NULL,
+    unit_price NUMERIC(10, 2),
+    notes VARCHAR(255)
+);
+CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items (order_id);
+CREATE INDEX IF NOT EXISTS idx_order_items_product ON order_items (product_id);
+
+CREATE TABLE IF NOT EXISTS orders_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    user_id BIGINT REFERENCES users (id),
+    order_date TIMESTAMP(6),
+    delivery_time VARCHAR(255),
+    total_amount FLOAT(53),
+    order_details TEXT,
+    status VARCHAR(255),
+    version BIGINT,
+    archived_at TIMESTAMP(6)
+);
+CREATE INDEX IF NOT EXISTS idx_orders_archive_user_date ON orders_archive (user_id, order_date, id);
+CREATE INDEX IF NOT EXISTS idx_orders_archive_date ON orders_archive (order_date);
+
+CREATE TABLE IF NOT EXISTS order_items_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    order_id BIGINT NOT NULL REFERENCES orders_archive (id),
+    product_id BIGINT,
+    product_name VARCHAR(255),
+    quantity INTEGER NOT NULL,
+    unit_price NUMERIC(10, 2),
+    notes VARCHAR(255)
+);
+CREATE INDEX IF NOT EXISTS idx_order_items_archive_order ON order_items_archive (order_id);
+
+CREATE TABLE IF NOT EXISTS sales_daily (
+    sales_day DATE NOT NULL PRIMARY KEY,
+    order_count BIGINT NOT NULL,
+    rejected_count BIGINT NOT NULL,
+    revenue NUMERIC(12, 2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sales_slot (
+    sales_day DATE NOT NULL,
+    delivery_time VARCHAR(255) NOT NULL,
+    order_count BIGINT NOT NULL,
+    revenue NUMERIC(12, 2) NOT NULL,
+    PRIMARY KEY (sales_day, delivery_time)
+);
+
+CREATE TABLE IF NOT EXISTS sales_product (
+    sales_day DATE NOT NULL,
+    product_id BIGINT NOT NULL,
+    product_name VARCHAR(255),
+    category_name VARCHAR(255),
+    quantity BIGINT NOT NULL,
+    revenue NUMERIC(12, 2) NOT NULL,
+    PRIMARY KEY (sales_day, product_id)
+);
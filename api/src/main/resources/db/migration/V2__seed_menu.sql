@@ -0,0 +1,64 @@
+-- Menu iniziale (prima lo inseriva DataSeeder a ogni avvio, dopo un count() sulle categorie).
+-- Gira una volta sola e solo su un DB senza menu: se categorie o prodotti ci sono già non tocca nulla.
+
+INSERT INTO categories (id, name)
+SELECT nextval('categories_seq'), c.name
+FROM (VALUES ('Le Pizze'), ('Le Focacce'), ('Le Farinate'), ('Le Bevande')) AS c(name)
+WHERE NOT EXISTS (SELECT 1 FROM categories);
+
+INSERT INTO products (id, name, description, price, image_url, category_id, available, is_monthly_special)
+SELECT nextval('products_seq'), m.name, m.description, m.price, NULL, c.id, TRUE, FALSE
+FROM (VALUES
+    -- LE PIZZE (Pagina 1)
+    ('Acquolina', 'Passata di pomodoro nostrano, provola affumicata, salsiccia, zucchine al forno', 8.00, 'Le Pizze'),
+    ('Affumicata', 'Fior di latte, carciofi, pesto di noci, burratina affumicata, speck, Salsiccia di bra in cottura', 10.00, 'Le Pizze'),
+    ('Alfa', 'Pomodori ciliegia gialli e rossi, fior di latte, crema di peperoni arrosto, gorgonzola dop, filetti di acciughe del mar Cantabrica', 9.00, 'Le Pizze'),
+    ('Amatriciana', 'Passata di pomodoro nostrano, provola affumicata, cipolla rossa di Tropea, guanciale, ricotta salata', 8.00, 'Le Pizze'),
+    ('Atena', 'Passata di pomodoro nostrano, prosciutto crudo piemontese stagionato trenta mesi, stracciatella di fior di latte (180gr circa), pomodorini gialli e rossi', 12.00, 'Le Pizze'),
+    ('Best', 'Fior di latte, prosciutto cotto, cipolla rossa di Tropea caramellata, Castelmagno d.o.p., patate al forno', 10.00, 'Le Pizze'),
+    ('Carbonara', 'Fior di latte, guanciale, carbocrema dopo cottura', 8.00, 'Le Pizze'),
+    ('Champions League', 'Passata di pomodoro nostrano, fior di latte, cipolla rossa di Tropea, funghi champignon, olive di riviera, spianata calabrese piccante', 9.00, 'Le Pizze'),
+    ('CosìComè', 'Passata di pomodori gialli, fior di latte, pancetta tradizionale, rosmarino, patate fresche al forno', 8.00, 'Le Pizze'),
+    ('Curvy', 'Passata di pomodoro nostrano, fior di latte, patate fresche al forno, salsiccia', 8.00, 'Le Pizze'),
+    -- LE PIZZE (Pagina 2)
+    ('Esplosiva', 'Passata di pomodoro, fior di latte, pancetta, nduja, gorgonzola', 8.00, 'Le Pizze'),
+    ('Europa league', 'Passata di pomodoro nostrano, fior di latte, prosciutto cotto, gorgonzola d.o.p., cipolla rossa di Tropea', 8.50, 'Le Pizze'),
+    ('formaggi', 'Fior di latte, raschera d.o.p., toma piemontese, gorgonzola d.o.p.', 10.00, 'Le Pizze'),
+    ('Fresca', 'Pomodori ciliegino gialli e rossi, mozzarella di bufala a km0, rucola, veli di Gran Kinara', 9.00, 'Le Pizze'),
+    ('Iellov', 'Polpa finissima di pomodori gialli, salsiccia, funghi champignon, rosmarino, olio profumato all''aglio e grana padano in cottura, Friarielli saltati e speziati', 10.00, 'Le Pizze'),
+    ('La Pakino', 'Fior di latte, pesto, pomodori datterino giallo e rosso, zucchine, salsiccia', 10.00, 'Le Pizze'),
+    ('Margherita (più o più)', 'Passata di pomodoro nostrano, fior di latte misto bufala, pomodori ciliegino gialli e rossi, una spolverata di Gran Kinara', 7.00, 'Le Pizze'),
+    ('Marinara', 'Passata di pomodoro nostrano, pomodori ciliegino gialli e rossi, olio extra vergine di oliva profumato all''aglio rosso, origano siciliano', 7.00, 'Le Pizze'),
+    ('Napoletana', 'Passata di pomodoro nostrano, filetti di acciughe del mar Cantabrico, capperi', 8.00, 'Le Pizze'),
+    ('Nina', 'Fior di latte, salsiccia di Bra in cottura, toma piemontese, nocciole tostate, lardo doppio', 10.00, 'Le Pizze'),
+    ('Norma', 'Passata di pomodoro nostrano, fior di latte, melanzane impanate, ricotta salata', 8.00, 'Le Pizze'),
+    ('Ortolana', 'Pomodori ciliegino gialli e rossi, fior di latte, zucchine al forno, melanzane impanate, friggitelli, funghi champignon', 9.00, 'Le Pizze'),
+    -- LE PIZZE (Pagina 3)
+    ('O sole mio', 'Passata di pomodori gialli, acciughe, cipolla, grana in cottura', 9.00, 'Le Pizze'),
+    ('Piemontese', 'Fior di latte, funghi porcini, salsiccia di Bra in cottura, castelmagno d.o.p.', 11.00, 'Le Pizze'),
+    ('Polpetta', 'Passata di pomodoro nostrano, polpette di vitello fassone e salsiccia, stracciatella di burrata (180gr circa)', 9.00, 'Le Pizze'),
+    ('Provolona', 'Passata di pomodoro, provola affumicata, guanciale, patate, pepe nero', 8.00, 'Le Pizze'),
+    ('Pulled Pizza 2.0', 'Focaccia, toma piemontese, pulled pork, salsa bbq, cipolla caramellata, cavolo rosso', 12.00, 'Le Pizze'),
+    ('Reale', 'Fior di latte, salsiccia di Bra in cottura, speck del Trentino, Castelmagno DOP', 9.00, 'Le Pizze'),
+    ('Rosina', 'Passata di pomodoro nostrano, gorgonzola d.o.p., pancetta tradizionale, salsiccia di Bra in cottura, cipolla di Tropea caramellata', 10.00, 'Le Pizze'),
+    ('Salsiccia & Friarielli', 'Fior di latte, friarielli saltati con aglio e peperoncino, salsiccia', 9.00, 'Le Pizze'),
+    ('Tre Porcellini', 'Passata di pomodoro, pancetta, salsiccia, spianata', 9.00, 'Le Pizze'),
+    ('Yoko', 'Passata di pomodoro nostrano, fior di latte, cipolla rossa di Tropea, olive di riviera, peperoni, semi di sesamo', 8.00, 'Le Pizze'),
+    -- LE FOCACCE
+    ('Schietta', 'Pomodori ciliegino gialli e rossi, patate fresche al forno, cipolla rossa di Tropea, origano siciliano, peperoncino', 7.00, 'Le Focacce'),
+    ('Estiva', 'Pomodoro datterino giallo e rosso, olive, bufala fuori cottura, origano', 7.00, 'Le Focacce'),
+    ('Focaccia Lardo', 'Focaccia con lardo doppio e rosmarino', 7.00, 'Le Focacce'),
+    ('Focaccia Crudo', 'Focaccia con prosciutto crudo piemontese stagionato trenta mesi', 7.00, 'Le Focacce'),
+    ('Dolce', 'Focaccia con Nutella', 6.00, 'Le Focacce'),
+    -- LE FARINATE
+    ('Farinata Classic', 'Con farina di ceci della maremma macinata a pietra', 3.00, 'Le Farinate'),
+    ('Farinata Farcita', 'Doppia farinata ripiena, 2 ingredienti a scelta', 6.00, 'Le Farinate'),
+    -- LE BEVANDE
+    ('Bibite Lattina', 'Aranciata, Limonata, Coca Cola, Coca Cola Zero', 2.50, 'Le Bevande'),
+    ('Menabrea Bionda', 'Birra Menabrea 150° anniversario bionda (33cl)', 3.00, 'Le Bevande'),
+    ('Menabrea Ambrata', 'Birra Menabrea 150° anniversario ambrata (33cl)', 3.00, 'Le Bevande'),
+    ('Ichnusa', 'Birra Ichnusa non filtrata', 3.00, 'Le Bevande'),
+    ('Poretti', 'Birra Poretti (66cl)', 5.00, 'Le Bevande')
+) AS m(name, description, price, category)
+JOIN categories c ON c.name = m.category
+WHERE NOT EXISTS (SELECT 1 FROM products);
@@ -0,0 +1,8 @@
+-- Come SequenceAlignment, ma una volta sola: porta ogni sequenza oltre il MAX(id) della sua tabella
+-- (serve sui DB nati con IDENTITY e poi baselinati, e dopo il seed con nextval). Mai indietro.
+
+SELECT setval('categories_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM categories), (SELECT last_value FROM categories_seq), 1));
+SELECT setval('products_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM products), (SELECT last_value FROM products_seq), 1));
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT last_value FROM users_seq), 1));
+SELECT setval('orders_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM orders), (SELECT last_value FROM orders_seq), 1));
+SELECT setval('order_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM order_items), (SELECT last_value FROM order_items_seq), 1));
@@ -0,0 +1,4 @@
+-- Unità di forno prenotate da ogni ordine (SlotCapacityService): il rilascio e la ricarica del registro
+-- usano questo numero invece di ricalcolarlo dal menu. NULL sugli ordini già esistenti.
+
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS oven_units INTEGER;
@@ -0,0 +1,7 @@
+-- Per i DB creati da ddl-auto prima dell'ingestione a journal e del lock ottimistico, arrivati a Flyway
+-- con la baseline a 0: V1 (IF NOT EXISTS) non tocca una tabella orders già esistente, le colonne nuove si aggiungono qui.
+-- Su un DB nato da V1 non cambia nulla.
+
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS submission_key VARCHAR(64);
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_orders_submission_key ON orders (submission_key);
@@ -0,0 +1,111 @@
+package com.dapakino.api.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// GCRA con il tempo passato a mano; interceptor e filtro con richieste finte, niente contesto Spring
+class RateLimiterTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void bucketAllowsBurstThenPaces() {
+        RateLimiter.Bucket bucket = RateLimiter.Bucket.of(60, 3); // Una al secondo, fino a 3 di fila
+        AtomicLong state = new AtomicLong(0);
+
+        assertThat(bucket.acquire(state, 0)).isZero();
+        assertThat(bucket.acquire(state, 0)).isZero();
+        assertThat(bucket.acquire(state, 0)).isZero();
+        assertThat(bucket.acquire(state, 0)).isEqualTo(SECOND);
+        // Un rifiuto non consuma nulla
+        assertThat(bucket.acquire(state, SECOND / 2)).isEqualTo(SECOND / 2);
+
+        // Dopo l'attesa indicata passa esattamente una richiesta
+        assertThat(bucket.acquire(state, SECOND)).isZero();
+        assertThat(bucket.acquire(state, SECOND)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void idleBucketRefillsOnlyUpToBurst() {
+        RateLimiter.Bucket bucket = RateLimiter.Bucket.of(60, 3);
+        AtomicLong state = new AtomicLong(0);
+        long later = 3600 * SECOND; // Un'ora ferma non vale più di 3 richieste
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.acquire(state, later)).isZero();
+        }
+        assertThat(bucket.acquire(state, later)).isEqualTo(SECOND);
+        assertThat(bucket.depth(state, later)).isEqualTo(3.0);
+    }
+
+    @Test
+    void retryAfterRoundsUpToWholeSeconds() {
+        assertThat(RateLimitInterceptor.retryAfterSeconds(1)).isEqualTo(1);
+        assertThat(RateLimitInterceptor.retryAfterSeconds(SECOND)).isEqualTo(1);
+        assertThat(RateLimitInterceptor.retryAfterSeconds(SECOND + 1)).isEqualTo(2);
+        assertThat(RateLimitInterceptor.retryAfterSeconds(6 * SECOND - 1000)).isEqualTo(6);
+    }
+
+    @Test
+    void interceptorAnswers429WithRetryAfter() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("dapakino.ratelimit.submit.per-minute", "10")
+                .withProperty("dapakino.ratelimit.submit.burst", "3");
+        RateLimiter limiter = new RateLimiter(new SimpleMeterRegistry(), environment, true, 100, 0, 0);
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(limiter);
+        HandlerMethod handler = new HandlerMethod(new Endpoints(), Endpoints.class.getMethod("submit"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(interceptor.preHandle(request("10.0.0.1"), new MockHttpServletResponse(), handler)).isTrue();
+        }
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request("10.0.0.1"), rejected, handler)).isFalse();
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("6"); // 10 al minuto = una ogni 6 s
+
+        // Un altro cliente ha il suo secchio
+        assertThat(interceptor.preHandle(request("10.0.0.2"), new MockHttpServletResponse(), handler)).isTrue();
+    }
+
+    @Test
+    void clientAddressComesFromTrustedProxyHop() throws Exception {
+        // Il client scrive "1.1.1.1", il proxy dell'hosting aggiunge l'indirizzo vero
+        assertThat(remoteAddrSeenByApp(1, "1.1.1.1, 203.0.113.7")).isEqualTo("203.0.113.7");
+        assertThat(remoteAddrSeenByApp(2, "1.1.1.1, 203.0.113.7, 10.0.0.5")).isEqualTo("203.0.113.7");
+        // Nessun proxy fidato: l'header non conta
+        assertThat(remoteAddrSeenByApp(0, "1.1.1.1")).isEqualTo("10.0.0.9");
+        // Catena più corta dei proxy dichiarati: resta l'indirizzo della connessione
+        assertThat(remoteAddrSeenByApp(2, "203.0.113.7")).isEqualTo("10.0.0.9");
+    }
+
+    private static String remoteAddrSeenByApp(int trustedHops, String forwardedFor) throws Exception {
+        MockHttpServletRequest request = request("10.0.0.9");
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        MockFilterChain chain = new MockFilterChain();
+        new TrustedForwardedHeaderFilter(trustedHops).doFilter(request, new MockHttpServletResponse(), chain);
+        return ((HttpServletRequest) chain.getRequest()).getRemoteAddr();
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    static class Endpoints {
+        @RateLimited(RateLimited.Group.SUBMIT)
+        public void submit() {
+        }
+    }
+}
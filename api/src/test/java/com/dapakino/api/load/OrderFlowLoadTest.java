@@ -0,0 +1,340 @@
+package com.dapakino.api.load;
+
+import com.dapakino.api.model.User;
+import com.dapakino.api.repository.OrderRepository;
+import com.dapakino.api.repository.UserRepository;
+import com.dapakino.api.security.SessionTokenService;
+import com.dapakino.api.service.SlotCapacityService;
+import com.dapakino.api.service.SlotSchedule;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Simulazione del venerdì sera sui controller veri (server HTTP reale, H2 in memoria):
+// i clienti guardano il menu e le fasce e ordinano, la cucina avanza gli stati.
+// Alla fine stampa throughput, p50/p99 per operazione, fasce oltre il limite e saturazione del pool.
+// Escluso dal build normale: mvn -Pload test
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class OrderFlowLoadTest {
+
+    private static final int CUSTOMERS = Integer.getInteger("load.customers", 50);
+    private static final int ORDERS_PER_CUSTOMER = Integer.getInteger("load.ordersPerCustomer", 4);
+    private static final int KITCHEN_WORKERS = Integer.getInteger("load.kitchenWorkers", 2);
+    private static final BigDecimal DELIVERY = new BigDecimal("2.00");
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ProductRow(Long id, boolean available, BigDecimal price) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record OrderRow(Long id, String status, Long version) {}
+
+    // Cliente registrato con il suo token di sessione (header X-Auth-Token della registrazione)
+    record Customer(Long id, String token) {}
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SlotSchedule slotSchedule;
+
+    @Autowired
+    private SlotCapacityService slotCapacity;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionTokenService sessionTokens;
+
+    private String staffToken;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    // Latenze (ns) e codici di risposta per operazione
+    private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, LongAdder>> statuses = new ConcurrentHashMap<>();
+
+    @Test
+    void dinnerRush() throws Exception {
+        List<Customer> customers = registerCustomers();
+        staffToken = staffToken();
+        ProductRow[] menu = objectMapper.readValue(call("menu", get("/api/products")).body(), ProductRow[].class);
+        List<ProductRow> products = new ArrayList<>();
+        for (ProductRow product : menu) {
+            if (product.available()) {
+                products.add(product);
+            }
+        }
+
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        AtomicInteger maxPending = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            maxPending.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+            maxActive.accumulateAndGet(pool.getActiveConnections(), Math::max);
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(CUSTOMERS + KITCHEN_WORKERS);
+        CountDownLatch customersDone = new CountDownLatch(CUSTOMERS);
+        AtomicBoolean rushOver = new AtomicBoolean();
+        long start = System.nanoTime();
+
+        for (Customer customer : customers) {
+            workers.submit(() -> {
+                try {
+                    for (int i = 0; i < ORDERS_PER_CUSTOMER; i++) {
+                        customerVisit(customer, products);
+                    }
+                } catch (Exception e) {
+                    record("errors", 0, 0);
+                } finally {
+                    customersDone.countDown();
+                }
+            });
+        }
+        for (int i = 0; i < KITCHEN_WORKERS; i++) {
+            workers.submit(() -> {
+                while (!rushOver.get()) {
+                    try {
+                        kitchenRound();
+                    } catch (Exception e) {
+                        record("errors", 0, 0);
+                    }
+                }
+            });
+        }
+
+        assertTrue(customersDone.await(5, TimeUnit.MINUTES), "I clienti non hanno finito in tempo");
+        rushOver.set(true);
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.shutdownNow();
+
+        List<String> overbooked = overbookedSlots();
+        String report = report(seconds, overbooked, maxPending.get(), maxActive.get(), pool);
+        System.out.println(report);
+        Files.createDirectories(Path.of("target"));
+        Files.writeString(Path.of("target", "load-report.txt"), report);
+
+        assertTrue(overbooked.isEmpty(), "Fasce oltre il limite: " + overbooked);
+        assertEquals(0, count("errors"), "Errori di rete o risposte 5xx inattese");
+    }
+
+    // Un cliente: menu, fasce libere, ordine su una fascia a caso
+    private void customerVisit(Customer customer, List<ProductRow> products) throws Exception {
+        call("menu", get("/api/products"));
+        HttpResponse<String> slotsResponse = call("slots", get("/api/orders/slots"));
+        if (slotsResponse.statusCode() != 200) {
+            return; // Respinto dal bulkhead: il cliente riprova al giro dopo
+        }
+        String[] slots = objectMapper.readValue(slotsResponse.body(), String[].class);
+        if (slots.length == 0) {
+            return; // Serata piena: il cliente rinuncia
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String slot = slots[random.nextInt(slots.length)];
+        ProductRow productA = products.get(random.nextInt(products.size()));
+        ProductRow productB = products.get(random.nextInt(products.size()));
+        // Il totale deve tornare con le righe: due prodotti + consegna (prezzo del server, dapakino.delivery.fees)
+        String total = productA.price().add(productB.price()).add(DELIVERY).toPlainString();
+        String body = """
+                {"user":{"id":%d},"deliveryTime":"%s","totalAmount":%s,
+                 "orderDetails":"Cliente: carico\\nOrario: %s\\n---\\n1x carico\\n---\\nTOTALE: %s€",
+                 "items":[{"productId":%d,"quantity":1},{"productId":%d,"quantity":1},
+                          {"productName":"Consegna Vinovo","quantity":1}]}
+                """.formatted(customer.id(), slot, total, slot, total, productA.id(), productB.id());
+        call("createOrder", post("/api/orders", body, customer.token()));
+    }
+
+    // La cucina legge la coda e fa avanzare un ordine di uno stato
+    private void kitchenRound() throws Exception {
+        HttpResponse<String> kitchenResponse = call("kitchen", HttpRequest.newBuilder(uri("/api/orders/kitchen"))
+                .header("Authorization", "Bearer " + staffToken).GET().build());
+        OrderRow[] orders = kitchenResponse.statusCode() == 200
+                ? objectMapper.readValue(kitchenResponse.body(), OrderRow[].class)
+                : new OrderRow[0];
+        if (orders.length == 0) {
+            Thread.sleep(20);
+            return;
+        }
+        OrderRow order = orders[ThreadLocalRandom.current().nextInt(orders.length)];
+        String next = switch (order.status()) {
+            case "INVIATO" -> "IN_PREPARAZIONE";
+            case "IN_PREPARAZIONE" -> "IN_CONSEGNA";
+            default -> "CONSEGNATO";
+        };
+        call("updateStatus", HttpRequest.newBuilder(uri("/api/orders/" + order.id() + "/status"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + staffToken)
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                        "{\"status\":\"" + next + "\",\"version\":" + order.version() + "}"))
+                .build());
+    }
+
+    private List<Customer> registerCustomers() throws Exception {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            String body = "{\"email\":\"carico" + i + "-" + System.nanoTime() + "@example.com\",\"password\":\"x\",\"firstName\":\"Cliente\",\"lastName\":\"" + i + "\"}";
+            HttpResponse<String> response = call("register", post("/api/auth/register", body));
+            customers.add(new Customer(objectMapper.readValue(response.body(), OrderRow.class).id(),
+                    response.headers().firstValue("X-Auth-Token").orElseThrow()));
+        }
+        return customers;
+    }
+
+    // La cucina lavora con un account staff, come il tablet vero
+    private String staffToken() {
+        User kitchen = new User();
+        kitchen.setEmail("cucina-" + System.nanoTime() + "@example.com");
+        kitchen.setPassword("x");
+        kitchen.setRole("KITCHEN");
+        return sessionTokens.issue(userRepository.save(kitchen));
+    }
+
+    // Controllo finale sul DB: nessuna fascia di oggi deve superare le unità di forno
+    // (ogni ordine del test ha due pezzi, molto meno di una fascia intera)
+    private List<String> overbookedSlots() {
+        LocalDate today = LocalDate.now();
+        Map<String, Integer> load = new TreeMap<>();
+        for (OrderRepository.SlotUnits row : orderRepository.sumOvenUnitsBySlot(
+                today.atStartOfDay(), today.plusDays(1).atStartOfDay(), "RIFIUTATO")) {
+            load.merge(row.getDeliveryTime(), row.getUnits().intValue(), Integer::sum);
+        }
+        slotCapacity.legacyUnits(today.atStartOfDay(), today.plusDays(1).atStartOfDay())
+                .forEach((slot, units) -> load.merge(slot, units, Integer::sum));
+        int capacity = slotSchedule.planFor(today).ovenUnits();
+        List<String> overbooked = new ArrayList<>();
+        load.forEach((slot, units) -> {
+            if (units > capacity) {
+                overbooked.add(slot + "=" + units);
+            }
+        });
+        return overbooked;
+    }
+
+    private HttpResponse<String> call(String operation, HttpRequest request) throws Exception {
+        long begin = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        record(operation, response.statusCode(), System.nanoTime() - begin);
+        // 409 = fascia piena e 503 = bulkhead DB sono risposte previste sotto carico
+        if (response.statusCode() >= 500 && response.statusCode() != 503) {
+            record("errors", response.statusCode(), 0);
+        }
+        return response;
+    }
+
+    private void record(String operation, int status, long nanos) {
+        latencies.computeIfAbsent(operation, k -> new ConcurrentLinkedQueue<>()).add(nanos);
+        statuses.computeIfAbsent(operation, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(status, k -> new LongAdder()).increment();
+    }
+
+    private long count(String operation) {
+        Map<Integer, LongAdder> byStatus = statuses.get(operation);
+        return byStatus == null ? 0 : byStatus.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private String report(double seconds, List<String> overbooked, int maxPending, int maxActive, HikariPoolMXBean pool) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "=== Carico ordini: %d clienti x %d ordini, %d cucina, %.1fs ===%n",
+                CUSTOMERS, ORDERS_PER_CUSTOMER, KITCHEN_WORKERS, seconds));
+        long total = 0;
+        for (String operation : new TreeMap<>(latencies).keySet()) {
+            if (operation.equals("errors")) {
+                continue;
+            }
+            List<Long> sorted = new ArrayList<>(latencies.get(operation));
+            sorted.sort(null);
+            total += sorted.size();
+            out.append(String.format(Locale.ROOT, "%-13s n=%-6d p50=%7.1fms p99=%7.1fms status=%s%n",
+                    operation, sorted.size(), percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    new TreeMap<>(statuses.get(operation))));
+        }
+        out.append(String.format(Locale.ROOT, "throughput    %.1f req/s%n", total / seconds));
+        out.append(String.format(Locale.ROOT, "overbooking   %s%n", overbooked.isEmpty() ? "nessuno" : overbooked));
+        out.append(String.format(Locale.ROOT, "pool Hikari   connessioni=%d picco attive=%d picco in attesa=%d%n",
+                pool.getTotalConnections(), maxActive, maxPending));
+        out.append(String.format(Locale.ROOT, "errori        %d%n", count("errors")));
+        return out.toString();
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest post(String path, String json, String token) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,117 @@
+package com.dapakino.api.security;
+
+import com.dapakino.api.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Filtro (lettura del token) + interceptor (regole di accesso) con richieste finte, niente contesto Spring
+class SessionTokenFilterTests {
+
+    private static final String SECRET = "segreto-di-prova-abbastanza-lungo";
+
+    private final SessionTokenService sessionTokens =
+            new SessionTokenService(SECRET, Duration.ofHours(1), new RevokedTokenStore());
+    private final SessionTokenFilter filter = new SessionTokenFilter(sessionTokens);
+    private final SessionAccessInterceptor interceptor = new SessionAccessInterceptor(true);
+
+    @Test
+    void validTokenReachesOwnDataAndStaffRoutes() throws Exception {
+        MockHttpServletRequest request = request("GET", "/api/orders/user/7", sessionTokens.issue(user(7L, "USER")));
+        assertThat(call(request).getStatus()).isEqualTo(200);
+        assertThat(request.getAttribute(SessionTokenFilter.PRINCIPAL_ATTRIBUTE))
+                .isInstanceOfSatisfying(SessionPrincipal.class, p -> assertThat(p.userId()).isEqualTo(7L));
+
+        assertThat(call(request("POST", "/api/orders", sessionTokens.issue(user(7L, "USER")))).getStatus()).isEqualTo(200);
+
+        String kitchen = sessionTokens.issue(user(1L, "KITCHEN"));
+        assertThat(call(request("GET", "/api/orders/kitchen", kitchen)).getStatus()).isEqualTo(200);
+
+        // EventSource non manda header: il token arriva come parametro
+        MockHttpServletRequest stream = request("GET", "/api/orders/kitchen/stream", null);
+        stream.setParameter("access_token", kitchen);
+        assertThat(call(stream).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void missingTokenIsUnauthorized() throws Exception {
+        assertThat(call(request("GET", "/api/orders/kitchen", null)).getStatus()).isEqualTo(401);
+        assertThat(call(request("GET", "/api/orders/user/7", null)).getStatus()).isEqualTo(401);
+        assertThat(call(request("POST", "/api/orders", null)).getStatus()).isEqualTo(401);
+        // Rotte pubbliche e /api/auth/login (non è una rotta utente) restano aperte
+        assertThat(call(request("GET", "/api/menu", null)).getStatus()).isEqualTo(200);
+        assertThat(call(request("POST", "/api/auth/login", null)).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void wrongRoleOrOtherUserIsForbidden() throws Exception {
+        String customer = sessionTokens.issue(user(7L, "USER"));
+        assertThat(call(request("GET", "/api/orders/kitchen", customer)).getStatus()).isEqualTo(403);
+        assertThat(call(request("GET", "/api/orders/user/8", customer)).getStatus()).isEqualTo(403);
+    }
+
+    @Test
+    void tamperedTokenIsIgnored() throws Exception {
+        String token = sessionTokens.issue(user(7L, "USER"));
+        int dot = token.indexOf('.');
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace(":USER:", ":ADMIN:").getBytes(StandardCharsets.UTF_8));
+
+        MockHttpServletRequest request = request("GET", "/api/orders/kitchen", forged + token.substring(dot));
+        assertThat(call(request).getStatus()).isEqualTo(401);
+        assertThat(request.getAttribute(SessionTokenFilter.PRINCIPAL_ATTRIBUTE)).isNull();
+        assertThat(call(request("GET", "/api/orders/kitchen", "non-un-token")).getStatus()).isEqualTo(401);
+    }
+
+    @Test
+    void expiredTokenIsUnauthorized() throws Exception {
+        // Stessa chiave, scadenza già passata: la firma è buona ma il token non vale più
+        SessionTokenService expired = new SessionTokenService(SECRET, Duration.ofMinutes(-1), new RevokedTokenStore());
+        String token = expired.issue(user(7L, "ADMIN"));
+        assertThat(call(request("GET", "/api/orders/kitchen", token)).getStatus()).isEqualTo(401);
+    }
+
+    @Test
+    void preflightAndNonEnforcedRequestsPass() throws Exception {
+        MockHttpServletRequest preflight = request("OPTIONS", "/api/orders/kitchen", null);
+        preflight.addHeader("Origin", "http://localhost:5173");
+        preflight.addHeader("Access-Control-Request-Method", "GET");
+        assertThat(call(preflight).getStatus()).isEqualTo(200);
+
+        MockHttpServletRequest request = request("GET", "/api/orders/kitchen", null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        assertThat(new SessionAccessInterceptor(false).preHandle(request, response, new Object())).isTrue();
+    }
+
+    private MockHttpServletResponse call(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        boolean proceed = interceptor.preHandle(request, response, new Object());
+        assertThat(proceed).isEqualTo(response.getStatus() == 200);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    private static User user(Long id, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        return user;
+    }
+}
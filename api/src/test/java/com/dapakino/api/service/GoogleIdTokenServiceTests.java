@@ -0,0 +1,117 @@
+package com.dapakino.api.service;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.json.webtoken.JsonWebSignature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Tutto offline: chiavi RSA generate qui e servite come JWKS locale
+class GoogleIdTokenServiceTests {
+
+    private static final String CLIENT_ID = "test-client.apps.googleusercontent.com";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicReference<String> jwks = new AtomicReference<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private KeyPair keyPair;
+    private GoogleIdTokenService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = newKeyPair();
+        jwks.set(jwks("key-1", keyPair));
+        GoogleKeySource localSource = () -> {
+            fetches.incrementAndGet();
+            return new GoogleKeySource.KeySet(Jwks.parse(objectMapper, jwks.get()), Duration.ofHours(1));
+        };
+        service = new GoogleIdTokenService(localSource, meterRegistry, CLIENT_ID);
+    }
+
+    @Test
+    void verifiesTokenAndServesKeysFromCache() throws Exception {
+        String token = sign("key-1", keyPair, CLIENT_ID);
+
+        assertThat(service.verify(token)).map(GoogleIdToken.Payload::getEmail).contains("mario@example.com");
+        assertThat(service.verify(token)).isPresent();
+
+        // Primo accesso: miss + download; secondo: dalla cache
+        assertThat(fetches).hasValue(1);
+        assertThat(counter("miss")).isEqualTo(1.0);
+        assertThat(counter("hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    void rejectsWrongAudienceAndTamperedTokens() throws Exception {
+        service.refreshKeys();
+
+        assertThat(service.verify(sign("key-1", keyPair, "another-client"))).isEmpty();
+
+        String token = sign("key-1", keyPair, CLIENT_ID);
+        String tampered = token.substring(0, token.lastIndexOf('.') + 1) + "AAAA";
+        assertThat(service.verify(tampered)).isEmpty();
+        assertThat(service.verify("not-a-jwt")).isEmpty();
+    }
+
+    @Test
+    void unknownKeyIdTriggersRefreshForKeyRotation() throws Exception {
+        service.refreshKeys();
+
+        KeyPair rotated = newKeyPair();
+        jwks.set(jwks("key-2", rotated));
+
+        assertThat(service.verify(sign("key-2", rotated, CLIENT_ID))).isPresent();
+        assertThat(fetches).hasValue(2);
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("auth.google.keys").tag("result", result).counter().count();
+    }
+
+    private static KeyPair newKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static String jwks(String kid, KeyPair keyPair) {
+        RSAPublicKey key = (RSAPublicKey) keyPair.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + kid + "\","
+                + "\"n\":\"" + encoder.encodeToString(key.getModulus().toByteArray()) + "\","
+                + "\"e\":\"" + encoder.encodeToString(key.getPublicExponent().toByteArray()) + "\"}]}";
+    }
+
+    private static String sign(String kid, KeyPair keyPair, String audience) throws Exception {
+        JsonWebSignature.Header header = new JsonWebSignature.Header();
+        header.setAlgorithm("RS256");
+        header.setType("JWT");
+        header.setKeyId(kid);
+
+        long now = System.currentTimeMillis() / 1000;
+        GoogleIdToken.Payload payload = new GoogleIdToken.Payload();
+        payload.setIssuer("https://accounts.google.com");
+        payload.setAudience(audience);
+        payload.setIssuedAtTimeSeconds(now);
+        payload.setExpirationTimeSeconds(now + 3600);
+        payload.setEmail("mario@example.com");
+
+        return JsonWebSignature.signUsingRsaSha256(keyPair.getPrivate(), GsonFactory.getDefaultInstance(), header, payload);
+    }
+}
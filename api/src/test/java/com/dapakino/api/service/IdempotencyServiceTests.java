@@ -0,0 +1,126 @@
+package com.dapakino.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Stessa Idempotency-Key: una sola esecuzione, anche con il secondo tentativo in arrivo a metà della prima
+class IdempotencyServiceTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void concurrentRetryWaitsForTheFirstResponse() throws Exception {
+        IdempotencyService idempotency = new IdempotencyService(registry, 100, Duration.ofHours(1), Duration.ofSeconds(10));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() -> idempotency.execute("k", () -> {
+            started.countDown();
+            await(release);
+            return created();
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<ResponseEntity<?>> retry = CompletableFuture.supplyAsync(() -> idempotency.execute("k", this::created));
+
+        release.countDown();
+        assertThat(retry.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+        assertThat(first.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(1);
+        assertThat(runs).hasValue(1);
+        assertThat(registry.counter("idempotency.requests", "result", "miss").count()).isEqualTo(1);
+
+        // A richiesta chiusa: risposta dalla cache
+        assertThat(idempotency.execute("k", this::created).getBody()).isEqualTo(1);
+        // Il ritentativo ha aspettato oppure è arrivato a cose fatte: in ogni caso non ha rieseguito
+        assertThat(registry.counter("idempotency.requests", "result", "hit").count()
+                + registry.counter("idempotency.requests", "result", "in_flight").count()).isEqualTo(2);
+    }
+
+    @Test
+    void retryGivesUpWhileTheFirstIsStillRunning() throws Exception {
+        IdempotencyService idempotency = new IdempotencyService(registry, 100, Duration.ofHours(1), Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() -> idempotency.execute("k", () -> {
+            started.countDown();
+            await(release);
+            return created();
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        try {
+            ResponseEntity<?> retry = idempotency.execute("k", this::created);
+            assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            assertThat(registry.counter("idempotency.requests", "result", "in_flight").count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void onlySuccessfulResponsesAreRemembered() {
+        IdempotencyService idempotency = new IdempotencyService(registry, 100, Duration.ofHours(1), Duration.ofSeconds(1));
+
+        // Fascia piena: il cliente cambia orario e ritenta con la stessa chiave
+        assertThat(idempotency.execute("k", () -> ResponseEntity.status(HttpStatus.CONFLICT).build()).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+        assertThatThrownBy(() -> idempotency.execute("k", () -> {
+            throw new IllegalStateException("DB giù");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(idempotency.execute("k", this::created).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void expiredKeysRunAgain() {
+        IdempotencyService idempotency = new IdempotencyService(registry, 100, Duration.ZERO, Duration.ofSeconds(1));
+
+        assertThat(idempotency.execute("k", this::created).getBody()).isEqualTo(1);
+        assertThat(idempotency.execute("k", this::created).getBody()).isEqualTo(2);
+    }
+
+    @Test
+    void oldestKeyIsEvictedPastTheLimit() {
+        IdempotencyService idempotency = new IdempotencyService(registry, 2, Duration.ofHours(1), Duration.ofSeconds(1));
+
+        idempotency.execute("a", this::created);
+        idempotency.execute("b", this::created);
+        idempotency.execute("c", this::created);
+        assertThat(idempotency.execute("c", this::created).getBody()).isEqualTo(3);
+        assertThat(idempotency.execute("a", this::created).getBody()).isEqualTo(4);
+    }
+
+    @Test
+    void keyFormat() {
+        assertThat(IdempotencyService.isValidKey("3f2c9a1e-checkout")).isTrue();
+        assertThat(IdempotencyService.isValidKey(null)).isFalse();
+        assertThat(IdempotencyService.isValidKey("  ")).isFalse();
+        assertThat(IdempotencyService.isValidKey("x".repeat(IdempotencyService.MAX_KEY_LENGTH + 1))).isFalse();
+    }
+
+    // Ogni esecuzione vera risponde con il proprio numero progressivo
+    private ResponseEntity<?> created() {
+        return ResponseEntity.status(HttpStatus.CREATED).body(runs.incrementAndGet());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Tokenizer e indice sul menu in memoria: singolare/plurale, accenti e famiglie di ingredienti
+class MenuSearchIndexTests {
+
+    private final MenuSearchIndex index = MenuSearchIndex.build(List.of(
+            product("Boscaiola", "Mozzarella, fungo champignon, salsiccia"),
+            product("Marinara", "Pomodoro, aglio, olio extra vergine"),
+            product("Napoli", "Pomodoro, mozzarella, acciughe"),
+            product("Bosco", "Ricotta e frutti di bosco")));
+
+    @Test
+    void tokenizerFoldsAccentsAndDropsStopwords() {
+        assertThat(MenuSearchIndex.tokenize("Peperoncino piccànte con la 'nduja"))
+                .containsExactly("peperoncin", "piccant", "nduj");
+    }
+
+    @Test
+    void singularAndPluralShareTheSameTerm() {
+        assertThat(MenuSearchIndex.tokenize("funghi")).isEqualTo(MenuSearchIndex.tokenize("fungo"));
+        assertThat(MenuSearchIndex.tokenize("acciughe")).isEqualTo(MenuSearchIndex.tokenize("acciuga"));
+        assertThat(MenuSearchIndex.tokenize("salsicce")).isEqualTo(MenuSearchIndex.tokenize("salsiccia"));
+        assertThat(MenuSearchIndex.tokenize("formaggi")).isEqualTo(MenuSearchIndex.tokenize("formaggio"));
+        assertThat(MenuSearchIndex.tokenize("olio")).isEqualTo(MenuSearchIndex.tokenize("oli"));
+    }
+
+    @Test
+    void withAndWithoutMatchOtherForms() {
+        assertThat(names(index.search(null, null, List.of("funghi"), false))).containsExactly("Marinara", "Napoli", "Bosco");
+        assertThat(names(index.search(null, List.of("funghi"), null, false))).containsExactly("Boscaiola");
+        assertThat(names(index.search("pomodori", null, null, false))).containsExactly("Marinara", "Napoli");
+    }
+
+    @Test
+    void familiesExcludeTheirIngredientsOnly() {
+        assertThat(names(index.search(null, null, List.of("maiale"), false))).containsExactly("Marinara", "Napoli", "Bosco");
+        // "frutti di bosco" non è pesce
+        assertThat(names(index.search(null, null, List.of("pesce"), false))).containsExactly("Boscaiola", "Marinara", "Bosco");
+    }
+
+    @Test
+    void suggestionsUseTheFirstSpellingSeen() {
+        assertThat(index.suggest("funghi", 5)).containsExactly("fungo");
+        assertThat(index.suggest("mozz", 5)).containsExactly("mozzarella");
+    }
+
+    private static Product product(String name, String description) {
+        return Product.builder().name(name).description(description).available(true).build();
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getName).toList();
+    }
+}
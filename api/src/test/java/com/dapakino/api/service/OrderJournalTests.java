@@ -0,0 +1,126 @@
+package com.dapakino.api.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Journal su una cartella temporanea: crash simulati chiudendo e riaprendo, o rovinando il file a mano
+class OrderJournalTests {
+
+    private static final long NO_COMPACTION = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysOnlyRecordsAfterCheckpoint() throws Exception {
+        List<OrderJournal.Entry> durable = new CopyOnWriteArrayList<>();
+        try (OrderJournal journal = new OrderJournal(directory, NO_COMPACTION, durable::add)) {
+            assertThat(journal.recovered()).isEmpty();
+            long first = append(journal, "uno");
+            append(journal, "due");
+            append(journal, "tre");
+            journal.checkpoint(first);
+        }
+        assertThat(durable).extracting(OrderJournal.Entry::seq).containsExactly(1L, 2L, 3L);
+
+        try (OrderJournal reopened = new OrderJournal(directory, NO_COMPACTION, entry -> {})) {
+            assertThat(reopened.recovered()).extracting(OrderJournal.Entry::seq).containsExactly(2L, 3L);
+            assertThat(reopened.recovered()).extracting(entry -> text(entry.payload())).containsExactly("due", "tre");
+            // La numerazione riprende da dove era arrivata
+            assertThat(append(reopened, "quattro")).isEqualTo(4L);
+        }
+    }
+
+    @Test
+    void truncatesTornTail() throws Exception {
+        try (OrderJournal journal = new OrderJournal(directory, NO_COMPACTION, entry -> {})) {
+            append(journal, "uno");
+            append(journal, "due");
+        }
+        Path log = directory.resolve("orders.log");
+        long intact = Files.size(log);
+        // Crash a metà write: un'intestazione che promette 100 byte e ne arrivano 3
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(19).putInt(100).putInt(0).putLong(3).put("tre".getBytes()).flip());
+        }
+
+        try (OrderJournal reopened = new OrderJournal(directory, NO_COMPACTION, entry -> {})) {
+            assertThat(reopened.recovered()).extracting(entry -> text(entry.payload())).containsExactly("uno", "due");
+            assertThat(Files.size(log)).isEqualTo(intact);
+            assertThat(append(reopened, "tre")).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    void stopsAtRecordWithBadChecksum() throws Exception {
+        try (OrderJournal journal = new OrderJournal(directory, NO_COMPACTION, entry -> {})) {
+            append(journal, "uno");
+            append(journal, "due");
+            append(journal, "tre");
+        }
+        Path log = directory.resolve("orders.log");
+        long firstRecord = 16 + "uno".length();
+        // Un byte del payload del secondo record cambiato: il CRC non torna più
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), firstRecord + 16);
+        }
+
+        try (OrderJournal reopened = new OrderJournal(directory, NO_COMPACTION, entry -> {})) {
+            assertThat(reopened.recovered()).extracting(entry -> text(entry.payload())).containsExactly("uno");
+            assertThat(Files.size(log)).isEqualTo(firstRecord);
+        }
+    }
+
+    @Test
+    void compactsWhenEverythingIsCheckpointed() throws Exception {
+        Path log = directory.resolve("orders.log");
+        try (OrderJournal journal = new OrderJournal(directory, 1, entry -> {})) {
+            append(journal, "uno");
+            long last = append(journal, "due");
+            journal.checkpoint(last);
+            // Il thread del journal compatta quando resta fermo (poll di 1 s senza append)
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (Files.size(log) > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(Files.size(log)).isZero();
+        }
+
+        try (OrderJournal reopened = new OrderJournal(directory, 1, entry -> {})) {
+            assertThat(reopened.recovered()).isEmpty();
+            assertThat(append(reopened, "tre")).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    void keepsDeadLettersAcrossRestarts() throws Exception {
+        try (OrderJournal journal = new OrderJournal(directory, NO_COMPACTION, entry -> {})) {
+            journal.deadLetter("{\"submissionKey\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+            journal.deadLetter("{\"submissionKey\":\"b\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        try (OrderJournal reopened = new OrderJournal(directory, NO_COMPACTION, entry -> {})) {
+            assertThat(reopened.deadLetters()).extracting(OrderJournalTests::text)
+                    .containsExactly("{\"submissionKey\":\"a\"}", "{\"submissionKey\":\"b\"}");
+        }
+    }
+
+    private static long append(OrderJournal journal, String payload) throws Exception {
+        return journal.append(payload.getBytes(StandardCharsets.UTF_8)).get(5, TimeUnit.SECONDS);
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
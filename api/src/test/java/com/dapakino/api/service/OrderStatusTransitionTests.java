@@ -0,0 +1,144 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Order;
+import com.dapakino.api.model.OrderStatus;
+import com.dapakino.api.repository.ArchivedOrderRepository;
+import com.dapakino.api.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Passaggi di stato ammessi e infornata dalla cucina: o si spostano tutti gli ordini o nessuno
+class OrderStatusTransitionTests {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final SlotCapacityService slotCapacity = mock(SlotCapacityService.class);
+    private final KitchenEventService kitchenEvents = mock(KitchenEventService.class);
+    private final ActiveOrderStore activeOrders = mock(ActiveOrderStore.class);
+    private final SalesRollupService salesRollups = mock(SalesRollupService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final SimpleTransactionStatus tx = new SimpleTransactionStatus();
+
+    private final OrderService service = new OrderService(orderRepository, mock(ArchivedOrderRepository.class),
+            mock(OrderItemService.class), slotCapacity, kitchenEvents, activeOrders, salesRollups, transactionTemplate);
+
+    OrderStatusTransitionTests() {
+        // La callback gira davvero, su una transazione finta di cui si può leggere il rollback
+        when(transactionTemplate.execute(any())).thenAnswer(call ->
+                call.<TransactionCallback<?>>getArgument(0).doInTransaction(tx));
+    }
+
+    @Test
+    void transitionTable() {
+        assertThat(OrderStatus.INVIATO.canMoveTo(OrderStatus.IN_PREPARAZIONE)).isTrue();
+        assertThat(OrderStatus.INVIATO.canMoveTo(OrderStatus.RIFIUTATO)).isTrue();
+        assertThat(OrderStatus.INVIATO.canMoveTo(OrderStatus.IN_CONSEGNA)).isFalse();
+        assertThat(OrderStatus.INVIATO.canMoveTo(OrderStatus.COMPLETATO)).isFalse();
+        // Un passo indietro per correggere il tablet, ma non oltre
+        assertThat(OrderStatus.IN_PREPARAZIONE.canMoveTo(OrderStatus.INVIATO)).isTrue();
+        assertThat(OrderStatus.IN_CONSEGNA.canMoveTo(OrderStatus.IN_PREPARAZIONE)).isTrue();
+        assertThat(OrderStatus.IN_CONSEGNA.canMoveTo(OrderStatus.INVIATO)).isFalse();
+        assertThat(OrderStatus.IN_CONSEGNA.canMoveTo(OrderStatus.RIFIUTATO)).isFalse();
+
+        for (OrderStatus status : OrderStatus.values()) {
+            assertThat(status.canMoveTo(status)).isTrue();
+            for (OrderStatus target : OrderStatus.values()) {
+                if (!status.isActive() && target != status) {
+                    assertThat(status.canMoveTo(target)).as(status + " -> " + target).isFalse();
+                }
+            }
+        }
+    }
+
+    @Test
+    void parseRejectsUnknownStates() {
+        assertThat(OrderStatus.parse("IN_CONSEGNA")).isEqualTo(OrderStatus.IN_CONSEGNA);
+        assertThatThrownBy(() -> OrderStatus.parse("in_consegna")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OrderStatus.parse(null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Stato sconosciuto: null");
+    }
+
+    @Test
+    void forbiddenBatchIsRejectedBeforeTouchingTheDatabase() {
+        assertThatThrownBy(() -> service.updateStatusBatch(List.of(1L, 2L), "CONSEGNATO", "INVIATO"))
+                .isInstanceOf(StatusConflictException.class)
+                .hasMessageContaining("Passaggio non ammesso");
+        assertThatThrownBy(() -> service.updateStatusBatch(List.of(1L), "INVIATO", "INVIATO"))
+                .isInstanceOf(StatusConflictException.class);
+
+        verifyNoInteractions(orderRepository, transactionTemplate, activeOrders, kitchenEvents, salesRollups);
+    }
+
+    @Test
+    void batchRollsBackWhenAnOrderWasAlreadyMoved() {
+        // L'ordine 3 l'ha già preso un altro tablet: l'UPDATE ne sposta solo due
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(orderRepository.transitionStatus(ids, "INVIATO", "IN_PREPARAZIONE")).thenReturn(2);
+        when(orderRepository.findStatusByIdIn(ids)).thenReturn(List.of(
+                row(1L, "INVIATO"), row(2L, "INVIATO"), row(3L, "IN_PREPARAZIONE")));
+
+        assertThatThrownBy(() -> service.updateStatusBatch(List.of(1L, 2L, 3L, 3L), "INVIATO", "IN_PREPARAZIONE"))
+                .isInstanceOfSatisfying(StatusConflictException.class,
+                        e -> assertThat(e.getOrderIds()).containsExactly(3L));
+
+        assertThat(tx.isRollbackOnly()).isTrue();
+        verify(orderRepository, never()).findWithItemsByIdIn(any());
+        verify(slotCapacity, never()).onOrderChanged(any(), any(), any(), any(), any(), anyInt());
+        verifyNoInteractions(activeOrders, kitchenEvents, salesRollups);
+    }
+
+    @Test
+    void batchMovesEveryOrderAndNotifiesOnce() {
+        LocalDateTime orderDate = LocalDateTime.of(2026, 10, 17, 18, 30);
+        List<Long> ids = List.of(2L, 1L);
+        when(orderRepository.findOrderDatesByIdIn(ids)).thenReturn(List.of(orderDate, orderDate));
+        when(orderRepository.transitionStatus(ids, "INVIATO", "IN_PREPARAZIONE")).thenReturn(2);
+        Order first = order(1L, orderDate);
+        Order second = order(2L, orderDate);
+        when(orderRepository.findWithItemsByIdIn(ids)).thenReturn(List.of(first, second));
+
+        // Risposta nell'ordine chiesto dalla cucina, non in quello del DB
+        assertThat(service.updateStatusBatch(ids, "INVIATO", "IN_PREPARAZIONE")).containsExactly(second, first);
+
+        assertThat(tx.isRollbackOnly()).isFalse();
+        verify(slotCapacity, times(2)).prepare(orderDate.toLocalDate());
+        verify(activeOrders).apply(List.of(second, first));
+        verify(slotCapacity, times(2)).onOrderChanged(eq(orderDate.toLocalDate()),
+                eq("INVIATO"), eq("19:00"), eq("IN_PREPARAZIONE"), eq("19:00"), anyInt());
+        verify(kitchenEvents).orderUpdated(first);
+        verify(kitchenEvents).orderUpdated(second);
+    }
+
+    private static Order order(Long id, LocalDateTime orderDate) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderDate(orderDate);
+        order.setDeliveryTime("19:00");
+        order.setStatus("IN_PREPARAZIONE");
+        return order;
+    }
+
+    private static OrderRepository.StatusRow row(Long id, String status) {
+        return new OrderRepository.StatusRow() {
+            public Long getId() { return id; }
+            public String getStatus() { return status; }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package com.dapakino.api.service;
+
+import com.dapakino.api.model.Order;
+import com.dapakino.api.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Prenota, rilascia, ricarica dal DB: il registro in memoria deve tornare sempre agli stessi numeri
+class SlotCapacityServiceTests {
+
+    // Domani: nessuna fascia è già passata, qualunque ora sia
+    private final LocalDate day = LocalDate.now().plusDays(1);
+
+    private final SlotSchedule schedule = new SlotSchedule(new MockEnvironment()
+            .withProperty("dapakino.slots.hours", "18:00-22:00")
+            .withProperty("dapakino.slots.oven-units", "12"),
+            Duration.ofMinutes(15), Duration.ZERO, 1, "Le Bevande:0");
+
+    @Test
+    void reserveAndReleaseRoundTrip() {
+        SlotCapacityService capacity = service(List.of(), List.of());
+
+        capacity.reserve(day, "19:00", 7);
+        capacity.reserve(day, "19:00", 5);
+        assertThatThrownBy(() -> capacity.reserve(day, "19:00", 1))
+                .isInstanceOf(SlotUnavailableException.class)
+                .hasMessageContaining("primo orario libero: 18:00");
+
+        capacity.release(day, "19:00", 5);
+        capacity.reserve(day, "19:00", 5);
+        assertThat(capacity.availableSlots(day, 1)).doesNotContain("19:00").contains("18:45", "19:15");
+    }
+
+    @Test
+    void reloadCountsLegacyOrdersAsTheyWillBeReleased() {
+        // Sul DB: 12 unità già scritte alle 19:00, e alle 19:15 due ordini di prima di ovenUnits,
+        // uno da due pezzi e uno senza righe (pesa comunque MIN_UNITS)
+        SlotCapacityService capacity = service(
+                List.of(booked("19:00", 12)),
+                List.of(legacy(1L, "19:15", 5L, 2), legacy(2L, "19:15", null, null)));
+
+        assertThat(capacity.availableSlots(day, 1)).doesNotContain("19:00");
+        assertThat(capacity.availableSlots(day, 9)).contains("19:15");
+        assertThat(capacity.availableSlots(day, 10)).doesNotContain("19:15");
+
+        // Rilascio dell'ordine senza righe: esce esattamente l'unità con cui era stato contato
+        Order withoutLines = new Order();
+        withoutLines.setItems(new ArrayList<>());
+        capacity.release(day, "19:15", capacity.units(withoutLines));
+        assertThat(capacity.availableSlots(day, 10)).contains("19:15");
+    }
+
+    @Test
+    void changeOnAnUnloadedDayIsNotAppliedTwice() {
+        // Il DB ha già l'ordine spostato dalle 19:30 alle 19:00 (commit avvenuto prima del caricamento)
+        SlotCapacityService capacity = service(List.of(booked("19:00", 6)), List.of());
+
+        capacity.onOrderChanged(day, "INVIATO", "19:30", "INVIATO", "19:00", 6);
+        capacity.reserve(day, "19:00", 6);
+        assertThatThrownBy(() -> capacity.reserve(day, "19:00", 1)).isInstanceOf(SlotUnavailableException.class);
+    }
+
+    @Test
+    void changeOnAPreparedDayMovesTheUnits() {
+        SlotCapacityService capacity = service(List.of(booked("19:30", 6)), List.of());
+        capacity.prepare(day);
+
+        capacity.onOrderChanged(day, "INVIATO", "19:30", "INVIATO", "19:00", 6);
+        assertThat(capacity.availableSlots(day, 7)).doesNotContain("19:00").contains("19:30");
+
+        // Rifiutato: libera il forno
+        capacity.onOrderChanged(day, "INVIATO", "19:00", "RIFIUTATO", "19:00", 6);
+        assertThat(capacity.availableSlots(day, 12)).contains("19:00", "19:30");
+    }
+
+    private SlotCapacityService service(List<OrderRepository.SlotUnits> booked, List<OrderRepository.LegacyLoad> legacy) {
+        OrderRepository orders = mock(OrderRepository.class);
+        when(orders.sumOvenUnitsBySlot(any(), any(), any())).thenReturn(booked);
+        when(orders.findLegacyLoad(any(), any(), any())).thenReturn(legacy);
+        MenuSnapshotService menu = mock(MenuSnapshotService.class);
+        when(menu.get()).thenReturn(new MenuSnapshotService.Snapshot(0, null, null, null, null, Map.of(), null));
+        return new SlotCapacityService(orders, schedule, menu);
+    }
+
+    private static OrderRepository.SlotUnits booked(String slot, int units) {
+        return new OrderRepository.SlotUnits() {
+            public String getDeliveryTime() { return slot; }
+            public Number getUnits() { return units; }
+        };
+    }
+
+    private static OrderRepository.LegacyLoad legacy(Long orderId, String slot, Long productId, Integer quantity) {
+        return new OrderRepository.LegacyLoad() {
+            public Long getOrderId() { return orderId; }
+            public String getDeliveryTime() { return slot; }
+            public Long getProductId() { return productId; }
+            public Number getQuantity() { return quantity; }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.dapakino.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Registro di una giornata: tanti checkout sulla stessa fascia nello stesso istante, nessuno oltre il limite
+class SlotLedgerTests {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 200;
+
+    @Test
+    void contendedSlotNeverGoesOverCapacity() throws Exception {
+        SlotLedger ledger = new SlotLedger(4, 12);
+
+        assertThat(race(ledger, 0, 1)).isEqualTo(12);
+        assertThat(ledger.load(0)).isEqualTo(12);
+        // Carrelli da 5: ne entrano due, il terzo sforerebbe
+        assertThat(race(ledger, 1, 5)).isEqualTo(2);
+        assertThat(ledger.load(1)).isEqualTo(10);
+        // Le altre fasce non sono state toccate
+        assertThat(ledger.load(2)).isZero();
+    }
+
+    @Test
+    void oversizedCartTakesAnEmptySlotOnlyOnce() throws Exception {
+        SlotLedger ledger = new SlotLedger(2, 12);
+
+        assertThat(race(ledger, 0, 20)).isEqualTo(1);
+        assertThat(ledger.load(0)).isEqualTo(20);
+        assertThat(ledger.tryReserve(0, 1)).isFalse();
+    }
+
+    @Test
+    void releaseFreesUnitsAndNeverGoesNegative() {
+        SlotLedger ledger = new SlotLedger(3, 12);
+        assertThat(ledger.tryReserve(0, 8)).isTrue();
+        assertThat(ledger.tryReserve(0, 5)).isFalse();
+
+        ledger.release(0, 8);
+        assertThat(ledger.tryReserve(0, 5)).isTrue();
+        ledger.release(0, 50);
+        assertThat(ledger.load(0)).isZero();
+
+        // Aggiunta forzata della cucina: può superare il limite, poi non entra più nessuno
+        ledger.add(1, 14);
+        assertThat(ledger.fits(1, 1)).isFalse();
+        assertThat(ledger.earliestFit(0, 3)).isZero();
+        assertThat(ledger.earliestFit(1, 3)).isEqualTo(2);
+    }
+
+    // Tutti i thread partono insieme e provano finché possono; ritorna le prenotazioni riuscite
+    private static int race(SlotLedger ledger, int slot, int units) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int reserved = 0;
+                    for (int i = 0; i < ATTEMPTS; i++) {
+                        if (ledger.tryReserve(slot, units)) {
+                            reserved++;
+                        }
+                    }
+                    return reserved;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(10, TimeUnit.SECONDS);
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -1,17 +1,10 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { X, ShoppingBag, Trash2, MapPin, Phone, User as UserIcon, Plus, Minus, Send, Clock, Loader2, UtensilsCrossed, Bike, Receipt } from 'lucide-react';
-import { useCart } from '../context/CartContext';
+import { useCart, extrasPrice } from '../context/CartContext';
 import { useNavigate } from 'react-router-dom';
 import { motion, AnimatePresence, type Variants } from 'framer-motion';
 import PremiumButton from './ui/PremiumButton';
-
-const DELIVERY_COSTS: Record<string, number> = {
-  'Vinovo': 2.0,
-  'Candiolo': 3.0,
-  'La Loggia': 3.0,
-  'Piobesi': 3.0,
-  'Altro Comune': 3.5
-};
+import { authHeaders } from '../utils/session';
 
 export function CartSidebar() {
   const { isCartOpen, setIsCartOpen, cart, updateQuantity, removeFromCart, clearCart, cartTotal, cartCount } = useCart();
@@ -20,12 +13,16 @@ export function CartSidebar() {
   const [customerName, setCustomerName] = useState('');
   const [address, setAddress] = useState('');
   const [selectedCity, setSelectedCity] = useState('Vinovo');
+  // Comuni e costi di consegna dal server: il prezzo della riga "Consegna" lo decide lui
+  const [deliveryCosts, setDeliveryCosts] = useState<Record<string, number>>({});
   const [phone, setPhone] = useState('');
   
   const [availableSlots, setAvailableSlots] = useState<string[]>([]);
   const [selectedTime, setSelectedTime] = useState('');
   const [loadingSlots, setLoadingSlots] = useState(false);
   const [isSubmitting, setIsSubmitting] = useState(false);
+  // Stessa chiave per i ritentativi dello stesso checkout (rete che cade): il server non duplica l'ordine
+  const checkoutKey = useRef<string | null>(null);
 
   const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080';
 
@@ -42,17 +39,37 @@ export function CartSidebar() {
 
     if (isCartOpen) {
       loadUserData();
-      fetchSlots();
     }
 
     window.addEventListener('storage', loadUserData);
     return () => window.removeEventListener('storage', loadUserData);
   }, [isCartOpen]);
 
+  useEffect(() => {
+    if (!isCartOpen || Object.keys(deliveryCosts).length > 0) return;
+    fetch(`${API_URL}/api/orders/delivery-fees`)
+      .then(res => (res.ok ? res.json() : {}))
+      .then((costs: Record<string, number>) => {
+        setDeliveryCosts(costs);
+        const cities = Object.keys(costs);
+        if (cities.length > 0 && !(selectedCity in costs)) setSelectedCity(cities[0]);
+      })
+      .catch(error => console.error("Errore costi di consegna:", error));
+  }, [isCartOpen]);
+
+  // Le fasce libere cambiano con il carrello: si ricaricano a ogni modifica
+  useEffect(() => {
+    if (isCartOpen) {
+      fetchSlots();
+    }
+  }, [isCartOpen, cart]);
+
   const fetchSlots = async () => {
     setLoadingSlots(true);
     try {
-      const res = await fetch(`${API_URL}/api/orders/slots`);
+      // Dieci pizze occupano il forno più di una birra
+      const cartParam = cart.map((item) => `${item.id}:${item.quantity}`).join(',');
+      const res = await fetch(`${API_URL}/api/orders/slots${cartParam ? `?cart=${encodeURIComponent(cartParam)}` : ''}`);
       if (res.ok) {
         const slots = await res.json();
         setAvailableSlots(slots);
@@ -64,7 +81,7 @@ export function CartSidebar() {
     }
   };
 
-  const deliveryFee = DELIVERY_COSTS[selectedCity] || 0;
+  const deliveryFee = deliveryCosts[selectedCity] || 0;
   const grandTotal = cartTotal + deliveryFee;
 
   const handleCheckout = async () => {
@@ -91,24 +108,47 @@ export function CartSidebar() {
     });
     orderDetailsText += `---\nConsegna: €${deliveryFee.toFixed(2)}\nTOTALE: €${grandTotal.toFixed(2)}`;
 
+    if (!checkoutKey.current) {
+      checkoutKey.current = crypto.randomUUID();
+    }
+
     try {
       const response = await fetch(`${API_URL}/api/orders`, {
         method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
+        headers: authHeaders({ 'Content-Type': 'application/json', 'Idempotency-Key': checkoutKey.current }),
         body: JSON.stringify({
           user: { id: user.id },
-          orderDate: new Date().toISOString().slice(0, 19), 
           deliveryTime: selectedTime,
           totalAmount: grandTotal,
           orderDetails: orderDetailsText,
+          // Le righe sommano al totale: aggiunte nel prezzo della riga, consegna come riga a sé (prezzo dal server)
+          items: [
+            ...cart.map((item) => ({
+              productId: item.id,
+              quantity: item.quantity,
+              extrasPrice: extrasPrice(item),
+              notes: item.selectedExtras?.length ? item.selectedExtras.map((e: any) => e.name).join(',') : null
+            })),
+            ...(deliveryFee > 0 ? [{ productName: `Consegna ${selectedCity}`, quantity: 1 }] : [])
+          ],
           status: 'INVIATO'
         })
       });
 
       if (response.ok) {
+        checkoutKey.current = null;
         clearCart();
         setIsCartOpen(false);
         navigate('/orders');
+      } else if (response.status === 409) {
+        // Fascia oraria riempita nel frattempo: ricarichiamo gli orari liberi
+        checkoutKey.current = null;
+        alert(await response.text());
+        fetchSlots();
+      } else if (response.status === 429) {
+        // Troppi tentativi ravvicinati: la chiave resta la stessa, il prossimo invio è lo stesso ordine
+        const wait = response.headers.get('Retry-After') ?? '1';
+        alert(`Troppe richieste, riprova tra ${wait} secondi`);
       }
     } catch (err) {
       alert("Errore invio ordine");
@@ -228,7 +268,7 @@ export function CartSidebar() {
                         value={selectedCity} onChange={e => setSelectedCity(e.target.value)}
                         className="w-1/3 p-3 rounded-xl bg-brand-cream border-none font-bold text-xs outline-none cursor-pointer"
                       >
-                        {Object.keys(DELIVERY_COSTS).map(c => <option key={c} value={c}>{c}</option>)}
+                        {Object.keys(deliveryCosts).map(c => <option key={c} value={c}>{c}</option>)}
                       </select>
                       <div className="relative flex-1">
                         <MapPin size={16} className="absolute left-3 top-3.5 text-brand-dark/30" />
@@ -2,6 +2,8 @@ import { Link, useLocation, useNavigate } from 'react-router-dom';
 import { useCart } from '../context/CartContext';
 import { ShoppingBag, User, Package, LogOut, LogIn } from 'lucide-react';
 import { motion, AnimatePresence } from 'framer-motion';
+import { API_URL } from '../config';
+import { authHeaders, clearSessionToken, getSessionToken } from '../utils/session';
 
 const logoSrc = "/logo-pakino.webp";
 
@@ -17,7 +19,11 @@ export default function Navbar() {
   if (isAdmin) return null;
 
   const handleLogout = () => {
-    // 1. Pulizia Utente
+    // 1. Pulizia Utente (il token va revocato anche lato server, senza aspettare la risposta)
+    if (getSessionToken()) {
+      fetch(`${API_URL}/api/auth/logout`, { method: 'POST', headers: authHeaders() }).catch(() => {});
+    }
+    clearSessionToken();
     localStorage.removeItem('user');
     localStorage.removeItem('isAdminAuthenticated');
     
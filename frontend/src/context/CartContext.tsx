@@ -64,7 +64,8 @@ export const CartProvider = ({ children }: { children: ReactNode }) => {
     localStorage.removeItem('cart'); // 2. FORZA la rimozione dal browser
   };
 
-  const cartTotal = cart.reduce((acc, item) => acc + item.price * item.quantity, 0);
+  // Prezzo di un pezzo con le aggiunte: lo stesso che il backend mette nella riga dell'ordine
+  const cartTotal = cart.reduce((acc, item) => acc + (item.price + extrasPrice(item)) * item.quantity, 0);
   const cartCount = cart.reduce((acc, item) => acc + item.quantity, 0);
 
   return (
@@ -77,6 +78,9 @@ export const CartProvider = ({ children }: { children: ReactNode }) => {
   );
 };
 
+export const extrasPrice = (item: CartItem) =>
+  (item.selectedExtras || []).reduce((acc, extra) => acc + extra.price, 0);
+
 export const useCart = () => {
   const context = useContext(CartContext);
   if (!context) throw new Error('useCart must be used within a CartProvider');
@@ -5,6 +5,7 @@ import {
 } from 'lucide-react';
 import type { Product, Category } from '../types/Product';
 import styles from './AdminPage.module.css';
+import { authHeaders } from '../utils/session';
 
 export default function AdminPage() {
   const [products, setProducts] = useState<Product[]>([]);
@@ -65,7 +66,7 @@ export default function AdminPage() {
     try {
       const res = await fetch(url, {
         method: method,
-        headers: { 'Content-Type': 'application/json' },
+        headers: authHeaders({ 'Content-Type': 'application/json' }),
         body: JSON.stringify(editingProduct)
       });
 
@@ -83,12 +84,12 @@ export default function AdminPage() {
 
   const deleteProduct = async (id: number) => {
     if (!confirm("Eliminare definitivamente?")) return;
-    await fetch(`${API_URL}/api/products/${id}`, { method: 'DELETE' });
+    await fetch(`${API_URL}/api/products/${id}`, { method: 'DELETE', headers: authHeaders() });
     fetchData();
   };
 
   const toggleAvailability = async (id: number) => {
-    await fetch(`${API_URL}/api/products/${id}/toggle-availability`, { method: 'PATCH' });
+    await fetch(`${API_URL}/api/products/${id}/toggle-availability`, { method: 'PATCH', headers: authHeaders() });
     fetchData();
   };
 
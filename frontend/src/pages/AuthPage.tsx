@@ -5,6 +5,7 @@ import { motion, AnimatePresence } from 'framer-motion';
 import { GoogleLogin } from '@react-oauth/google';
 import PremiumButton from '../components/ui/PremiumButton';
 import styles from './AuthPage.module.css';
+import { saveSessionToken } from '../utils/session';
 
 const logoSrc = "/logo-pakino.webp";
 
@@ -43,6 +44,7 @@ export default function AuthPage() {
       const data = await res.json();
 
       if (res.ok) {
+        saveSessionToken(res);
         localStorage.setItem('user', JSON.stringify(data));
         window.dispatchEvent(new Event('storage')); // Aggiorna Navbar
         navigate('/'); // Vai alla Home
@@ -69,6 +71,7 @@ export default function AuthPage() {
 
       if (res.ok) {
         const userData = await res.json();
+        saveSessionToken(res);
         localStorage.setItem('user', JSON.stringify(userData));
         window.dispatchEvent(new Event('storage'));
         navigate('/');
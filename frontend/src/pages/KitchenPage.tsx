@@ -2,6 +2,7 @@ import { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { ChefHat, Clock, CheckCircle, RefreshCw, LogOut, Bike, Settings, User, MapPin, Phone } from 'lucide-react';
 import styles from './KitchenPage.module.css';
+import { authHeaders, withAccessToken } from '../utils/session';
 
 interface Order {
   id: number;
@@ -10,6 +11,7 @@ interface Order {
   orderDetails: string;
   status: string;
   deliveryTime?: string; 
+  version?: number;
 }
 
 export default function KitchenPage() {
@@ -32,7 +34,7 @@ export default function KitchenPage() {
 
   const fetchOrders = async () => {
     try {
-      const res = await fetch(`${API_URL}/api/orders/kitchen`); 
+      const res = await fetch(`${API_URL}/api/orders/kitchen`, { headers: authHeaders() });
       if (res.ok) {
         const data = await res.json();
         const activeOrders = data.filter((o: Order) => 
@@ -52,23 +54,53 @@ export default function KitchenPage() {
     }
   };
 
+  // Stream SSE: snapshot alla connessione, poi solo le variazioni.
+  // EventSource si riconnette da solo e manda Last-Event-ID per recuperare gli eventi persi.
   useEffect(() => {
-    fetchOrders();
-    const interval = setInterval(fetchOrders, 10000); 
-    return () => clearInterval(interval);
+    const source = new EventSource(withAccessToken(`${API_URL}/api/orders/kitchen/stream`));
+
+    const upsert = (order: Order) =>
+      setOrders(prev => prev.some(o => o.id === order.id)
+        ? prev.map(o => o.id === order.id ? order : o)
+        : [...prev, order]);
+
+    source.addEventListener('snapshot', (e) => {
+      const data: Order[] = JSON.parse((e as MessageEvent).data);
+      prevOrdersCount.current = data.length;
+      setOrders(data);
+      setLoading(false);
+    });
+    source.addEventListener('order-created', (e) => {
+      upsert(JSON.parse((e as MessageEvent).data));
+      playNotificationSound();
+    });
+    source.addEventListener('order-updated', (e) => {
+      upsert(JSON.parse((e as MessageEvent).data));
+    });
+    source.addEventListener('order-closed', (e) => {
+      const { id } = JSON.parse((e as MessageEvent).data);
+      setOrders(prev => prev.filter(o => o.id !== id));
+    });
+
+    return () => source.close();
   }, []);
 
   const handleUpdateOrder = async (id: number, status: string, deliveryTime?: string) => {
+    // Mandiamo la versione che vediamo: se un altro tablet ha già toccato l'ordine il server risponde 409
+    const version = orders.find(o => o.id === id)?.version;
     setOrders(prev => prev.map(o => o.id === id ? { ...o, status, deliveryTime: deliveryTime || o.deliveryTime } : o));
     setRejectingId(null); 
 
     try {
-      await fetch(`${API_URL}/api/orders/${id}/status`, {
+      const res = await fetch(`${API_URL}/api/orders/${id}/status`, {
         method: 'PATCH',
-        headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify({ status, deliveryTime })
+        headers: authHeaders({ 'Content-Type': 'application/json' }),
+        body: JSON.stringify({ status, deliveryTime, version })
       });
-      fetchOrders();
+      if (res.status === 409) {
+        alert(await res.text());
+        fetchOrders();
+      }
     } catch (err) {
       alert("Errore aggiornamento. Controlla connessione.");
     }
@@ -1,33 +1,47 @@
 import { useState } from 'react';
 import { useNavigate } from 'react-router-dom';
-import { Lock, ArrowLeft, ShieldCheck } from 'lucide-react';
+import { Lock, Mail, ArrowLeft, ShieldCheck } from 'lucide-react';
 import { motion } from 'framer-motion';
 import PremiumButton from '../components/ui/PremiumButton';
 import styles from './LoginPage.module.css';
+import { saveSessionToken } from '../utils/session';
+import { API_URL } from '../config';
 
 const logoSrc = "/logo-pakino.webp";
+const STAFF_ROLES = ['ADMIN', 'KITCHEN'];
 
 export default function LoginPage() {
+  const [email, setEmail] = useState('');
   const [password, setPassword] = useState('');
   const [error, setError] = useState(false);
   const [isLoading, setIsLoading] = useState(false);
   const navigate = useNavigate();
 
-  const handleLogin = (e: React.FormEvent) => {
+  // Login vero sul backend con un account staff (ruolo ADMIN o KITCHEN): il token che torna
+  // è quello che le rotte di cucina e admin controllano
+  const handleLogin = async (e: React.FormEvent) => {
     e.preventDefault();
     setIsLoading(true);
-    
-    // Simuliamo un minimo di ritardo per l'effetto "elaborazione"
-    setTimeout(() => {
-      if (password === 'pizza123') {
+
+    try {
+      const res = await fetch(`${API_URL}/api/auth/login`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ email, password })
+      });
+      const user = res.ok ? await res.json() : null;
+      if (user && STAFF_ROLES.includes(user.role)) {
+        saveSessionToken(res);
         localStorage.setItem('isAdminAuthenticated', 'true');
         navigate('/admin'); // Reindirizza alla dashboard cucina o admin
-      } else {
-        setError(true);
-        setIsLoading(false);
-        setTimeout(() => setError(false), 2000); // Rimuovi errore dopo 2s
+        return;
       }
-    }, 800);
+    } catch (err) {
+      console.error("Errore login staff:", err);
+    }
+    setError(true);
+    setIsLoading(false);
+    setTimeout(() => setError(false), 2000); // Rimuovi errore dopo 2s
   };
 
   return (
@@ -54,7 +68,25 @@ export default function LoginPage() {
         <form onSubmit={handleLogin} className={styles.form}>
           <div className="space-y-1">
             <label className={styles.label}>
-              Password di Sicurezza
+              Email Staff
+            </label>
+            <div className={`${styles.inputGroup} group`}>
+              <Mail size={18} className={styles.inputIcon} />
+              <input
+                type="email"
+                value={email}
+                onChange={(e) => { setEmail(e.target.value); setError(false); }}
+                className={`${styles.input} ${error ? styles.inputError : ''}`}
+                placeholder="cucina@dapakino.it"
+                autoFocus
+                required
+              />
+            </div>
+          </div>
+
+          <div className="space-y-1">
+            <label className={styles.label}>
+              Password
             </label>
             <div className={`${styles.inputGroup} group`}>
               <Lock size={18} className={styles.inputIcon} />
@@ -64,7 +96,6 @@ export default function LoginPage() {
                 onChange={(e) => { setPassword(e.target.value); setError(false); }}
                 className={`${styles.input} ${error ? styles.inputError : ''}`}
                 placeholder="••••••••"
-                autoFocus
                 required
               />
             </div>
@@ -76,7 +107,7 @@ export default function LoginPage() {
               animate={{ opacity: 1, height: 'auto' }}
               className={styles.errorMessage}
             >
-              ⛔ Password non valida. Riprova.
+              ⛔ Credenziali non valide o account senza accesso staff.
             </motion.div>
           )}
 
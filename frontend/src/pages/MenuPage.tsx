@@ -1,7 +1,7 @@
 import { useState, useEffect } from 'react';
 import { useCart } from '../context/CartContext';
 import { Plus, Search, Star, Flame, Sparkles } from 'lucide-react';
-import type { Product, Category } from '../types/Product';
+import type { Product, Category, MenuSection } from '../types/Product';
 import { motion, AnimatePresence } from 'framer-motion';
 import styles from './MenuPage.module.css';
 
@@ -30,13 +30,14 @@ export default function MenuPage() {
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const [prodRes, catRes] = await Promise.all([
-          fetch(`${API_URL}/api/products`),
-          fetch(`${API_URL}/api/categories`)
-        ]);
-        if (prodRes.ok && catRes.ok) {
-          setProducts(await prodRes.json());
-          setCategories(await catRes.json());
+        // Una sola chiamata: il menu arriva già diviso per categoria
+        const res = await fetch(`${API_URL}/api/menu`);
+        if (res.ok) {
+          const sections: MenuSection[] = await res.json();
+          setCategories(sections.map(({ id, name }) => ({ id, name })));
+          setProducts(sections.flatMap(section =>
+            section.products.map(p => ({ ...p, available: true, category: { id: section.id, name: section.name } }))
+          ));
         }
       } catch (error) {
         console.error("Errore menu:", error);
@@ -1,10 +1,11 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { Pizza, Clock, Package, Bike, CheckCircle2, Calendar, ChefHat, MapPin, Timer, Receipt, RefreshCw, ArrowRight, Phone, UserIcon } from 'lucide-react';
 import type { Order } from '../types/Order';
 import { motion, AnimatePresence } from 'framer-motion';
 import PremiumButton from '../components/ui/PremiumButton';
 import { useNavigate } from 'react-router-dom';
 import styles from './OrdersPage.module.css';
+import { fetchOrderPage, mergeOrders } from '../utils/orders';
 
 // Stati e loro progresso percentuale
 const STATUS_PROGRESS: Record<string, number> = {
@@ -19,19 +20,20 @@ export default function OrdersPage() {
   const [orders, setOrders] = useState<Order[]>([]);
   const [loading, setLoading] = useState(true);
   const [activeTab, setActiveTab] = useState<'active' | 'history'>('active');
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+  // Dopo "Carica altri" il polling aggiorna solo la prima pagina e tiene quelle più vecchie già caricate
+  const loadedOlder = useRef(false);
   
   const user = JSON.parse(localStorage.getItem('user') || 'null');
-  const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080';
   const navigate = useNavigate();
 
   useEffect(() => {
     const fetchOrders = async () => {
       try {
-        const response = await fetch(`${API_URL}/api/orders/user/${user?.id}`);
-        if (response.ok) {
-          const data: Order[] = await response.json();
-          setOrders(data.sort((a, b) => new Date(b.orderDate).getTime() - new Date(a.orderDate).getTime()));
-        }
+        const page = await fetchOrderPage(user.id);
+        setOrders(prev => mergeOrders(page.orders, loadedOlder.current ? prev : []));
+        if (!loadedOlder.current) setNextCursor(page.nextCursor);
       } catch (error) {
         console.error("Errore recupero ordini:", error);
       } finally {
@@ -41,7 +43,22 @@ export default function OrdersPage() {
     if (user) fetchOrders();
     const interval = setInterval(fetchOrders, 3000); // Polling ogni 10s
     return () => clearInterval(interval);
-  }, [user?.id, API_URL]);
+  }, [user?.id]);
+
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchOrderPage(user.id, nextCursor);
+      loadedOlder.current = true;
+      setOrders(prev => mergeOrders(prev, page.orders));
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error("Errore caricamento ordini precedenti:", error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   const activeOrders = orders.filter(o => ['INVIATO', 'IN_PREPARAZIONE', 'IN_CONSEGNA'].includes(o.status));
   const historyOrders = orders.filter(o => !['INVIATO', 'IN_PREPARAZIONE', 'IN_CONSEGNA'].includes(o.status));
@@ -90,6 +107,13 @@ export default function OrdersPage() {
             ) : (
               <EmptyState message="Non hai ancora effettuato ordini." />
             )}
+            {nextCursor && (
+              <div className="col-span-full flex justify-center">
+                <PremiumButton variant="outline" onClick={loadMore} disabled={loadingMore}>
+                  {loadingMore ? <RefreshCw className="animate-spin" size={16} /> : 'Carica altri ordini'}
+                </PremiumButton>
+              </div>
+            )}
           </motion.div>
         )}
       </AnimatePresence>
@@ -5,6 +5,8 @@ import type { Order } from '../types/Order';
 import type { Product } from '../types/Product';
 import { motion, AnimatePresence } from 'framer-motion';
 import PremiumButton from '../components/ui/PremiumButton';
+import { fetchOrderPage, mergeOrders } from '../utils/orders';
+import { authHeaders } from '../utils/session';
 
 export default function ProfilePage() {
   const [orders, setOrders] = useState<Order[]>([]);
@@ -12,6 +14,8 @@ export default function ProfilePage() {
   const [loading, setLoading] = useState(true);
   const [isUpdating, setIsUpdating] = useState(false);
   const [activeTab, setActiveTab] = useState<'profile' | 'orders'>('profile');
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   
   const [user, setUser] = useState(JSON.parse(localStorage.getItem('user') || 'null'));
   const [formData, setFormData] = useState({ 
@@ -28,11 +32,12 @@ export default function ProfilePage() {
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const [ordersRes, menuRes] = await Promise.all([
-          fetch(`${API_URL}/api/orders/user/${user?.id}`),
+        const [ordersPage, menuRes] = await Promise.all([
+          fetchOrderPage(user.id),
           fetch(`${API_URL}/api/products`)
         ]);
-        if (ordersRes.ok) setOrders(await ordersRes.json());
+        setOrders(ordersPage.orders);
+        setNextCursor(ordersPage.nextCursor);
         if (menuRes.ok) setMenuProducts(await menuRes.json());
       } catch (error) {
         console.error("Errore caricamento:", error);
@@ -43,13 +48,27 @@ export default function ProfilePage() {
     if (user) fetchData();
   }, [user?.id, API_URL]);
 
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchOrderPage(user.id, nextCursor);
+      setOrders(prev => mergeOrders(prev, page.orders));
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error("Errore caricamento ordini precedenti:", error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const handleUpdateUser = async (e: React.FormEvent) => {
     e.preventDefault();
     setIsUpdating(true);
     try {
       const res = await fetch(`${API_URL}/api/auth/update-profile/${user.id}`, {
         method: 'PUT',
-        headers: { 'Content-Type': 'application/json' },
+        headers: authHeaders({ 'Content-Type': 'application/json' }),
         body: JSON.stringify(formData)
       });
 
@@ -244,6 +263,11 @@ export default function ProfilePage() {
                   </motion.div>
                 ))
               )}
+              {nextCursor && (
+                <PremiumButton variant="outline" onClick={loadMore} disabled={loadingMore} className="w-full">
+                  {loadingMore ? <RefreshCw className="animate-spin mx-auto" size={16} /> : 'Carica altri ordini'}
+                </PremiumButton>
+              )}
             </motion.div>
           )}
         </AnimatePresence>
@@ -1,9 +1,19 @@
+export interface OrderItem {
+  id: number;
+  productId?: number;
+  productName: string;
+  quantity: number;
+  unitPrice?: number;
+  notes?: string;
+}
+
 export interface Order {
   id: number;
   orderDate: string;      
   deliveryTime: string;   
   totalAmount: number;
   orderDetails: string;   
+  items?: OrderItem[];
   status: 'INVIATO' | 'IN_PREPARAZIONE' | 'IN_CONSEGNA' | 'COMPLETATO' | 'CONSEGNATO' | 'RIFIUTATO';
   user?: {
     id: number;
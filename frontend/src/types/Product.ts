@@ -12,4 +12,11 @@ export interface Product {
     available: boolean;
     category: Category;
     isMonthlySpecial?: boolean;
-}
\ No newline at end of file
+}
+
+// Sezione di GET /api/menu: categoria con i suoi prodotti disponibili
+export interface MenuSection {
+    id: number;
+    name: string;
+    products: Omit<Product, 'category' | 'available'>[];
+}
@@ -0,0 +1,26 @@
+import type { Order } from '../types/Order';
+import { API_URL } from '../config';
+import { authHeaders } from './session';
+
+// Lo storico arriva a pagine (dal più recente): il backend manda al massimo 50 ordini
+// e mette il cursore della pagina successiva nell'header X-Next-Cursor (assente = finiti)
+export interface OrderPage {
+  orders: Order[];
+  nextCursor: string | null;
+}
+
+export async function fetchOrderPage(userId: number, cursor?: string | null): Promise<OrderPage> {
+  const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : '';
+  const response = await fetch(`${API_URL}/api/orders/user/${userId}${query}`, { headers: authHeaders() });
+  if (!response.ok) {
+    throw new Error(`Storico ordini non disponibile (${response.status})`);
+  }
+  return { orders: await response.json(), nextCursor: response.headers.get('X-Next-Cursor') };
+}
+
+// Unisce due elenchi senza doppioni: a parità di id vince "first" (il dato più fresco)
+export function mergeOrders(first: Order[], second: Order[]): Order[] {
+  const byId = new Map<number, Order>();
+  [...second, ...first].forEach(order => byId.set(order.id, order));
+  return [...byId.values()].sort((a, b) => new Date(b.orderDate).getTime() - new Date(a.orderDate).getTime());
+}
@@ -0,0 +1,27 @@
+// Token di sessione firmato dal backend: arriva nell'header X-Auth-Token di login, registrazione e login Google
+// e torna indietro come "Authorization: Bearer ...". EventSource non può mandare header: lì va in ?access_token=
+const TOKEN_KEY = 'authToken';
+
+export function saveSessionToken(response: Response) {
+  const token = response.headers.get('X-Auth-Token');
+  if (token) localStorage.setItem(TOKEN_KEY, token);
+}
+
+export function getSessionToken(): string | null {
+  return localStorage.getItem(TOKEN_KEY);
+}
+
+export function clearSessionToken() {
+  localStorage.removeItem(TOKEN_KEY);
+}
+
+export function authHeaders(headers: Record<string, string> = {}): Record<string, string> {
+  const token = getSessionToken();
+  return token ? { ...headers, Authorization: `Bearer ${token}` } : headers;
+}
+
+export function withAccessToken(url: string): string {
+  const token = getSessionToken();
+  if (!token) return url;
+  return `${url}${url.includes('?') ? '&' : '?'}access_token=${encodeURIComponent(token)}`;
+}